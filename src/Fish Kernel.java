@@ -0,0 +1,5241 @@
+import javalib.worldimages.*; // images, like RectangleImage or OverlayImages
+import javalib.funworld.*; // the abstract World class and the big-bang library
+import java.awt.Color; // general colors (as triples of red,green,blue values)
+// and predefined colors (Red, Green, Yellow, Blue, Black, White)
+import java.util.Random;
+
+// Interface for predicate-objects with siganture [T -> Boolean]
+interface IPred<T> {
+  boolean apply(T t);
+}
+
+class RemoveOffScreen implements IPred<Fish> {
+  WorldConfig world;
+
+  RemoveOffScreen(WorldConfig world) {
+    this.world = world;
+  }
+
+  public boolean apply(Fish f) {
+    return !f.isOffscreen(this.world.width, this.world.height, f);
+  }
+}
+
+// Interface for comparator-objects with siganture [T -> Boolean]
+interface IComparator<T> {
+  boolean apply(T t1, T t2);
+}
+
+class IsEatenBy implements IComparator<Fish> {
+  public boolean apply(Fish f1, Fish f2) {
+    return f1.fishCollision(f2) && f1.canFishEat(f2);
+  }
+}
+
+class IsNotEatenBy implements IComparator<Fish> {
+  public boolean apply(Fish f1, Fish f2) {
+    return !f2.fishCollision(f1);
+  }
+}
+
+class IsEaten implements IComparator<Fish> {
+  public boolean apply(Fish f1, Fish f2) {
+    return f1.fishCollision(f2);
+  }
+}
+
+class ByLevel implements IComparator<Fish> {
+  public boolean apply(Fish f1, Fish f2) {
+    return f1.level <= f2.level;
+  }
+}
+
+// Interface for one-argument function-object with signature [A -> R]
+interface IFunc<A, R> {
+  R apply(A arg);
+}
+
+class MoveAll implements IFunc<Fish, Fish> {
+  WorldConfig world;
+
+  MoveAll(WorldConfig world) {
+    this.world = world;
+  }
+
+  public Fish apply(Fish f) {
+    return f.move(this.world);
+  }
+}
+
+class MoveInPlace implements IFunc<Fish, Fish> {
+  WorldConfig world;
+
+  MoveInPlace(WorldConfig world) {
+    this.world = world;
+  }
+
+  public Fish apply(Fish f) {
+    return f.moveInPlace(this.world);
+  }
+}
+
+class CopyFish implements IFunc<Fish, Fish> {
+  public Fish apply(Fish f) {
+    return f.copy();
+  }
+}
+
+class Unchanged implements IFunc<Fish, Fish> {
+  public Fish apply(Fish f) {
+    return f;
+  }
+}
+
+// keeps the fish that IsNotEatenBy keeps for the given player
+class NotEatenBy implements IPred<Fish> {
+  Fish player;
+
+  NotEatenBy(Fish player) {
+    this.player = player;
+  }
+
+  public boolean apply(Fish f) {
+    return new IsNotEatenBy().apply(this.player, f);
+  }
+}
+
+// Interface for two-argument function-objects with signature [A1, A2 -> R]
+interface IFunc2<A1, A2, R> {
+  R apply(A1 arg1, A2 arg2);
+}
+
+class PlaceAll implements IFunc2<Fish, WorldScene, WorldScene> {
+  public WorldScene apply(Fish f, WorldScene ws) {
+    return f.place(ws);
+  }
+}
+
+// places only the fish that are at least partly inside a canvas of the given
+// size, so fish still swimming in from the edges cost nothing to draw
+class PlaceVisible implements IFunc2<Fish, WorldScene, WorldScene> {
+  int width;
+  int height;
+
+  PlaceVisible(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  public WorldScene apply(Fish f, WorldScene ws) {
+    if (f.isVisible(this.width, this.height)) {
+      return f.place(ws);
+    }
+    else {
+      return ws;
+    }
+  }
+}
+
+class SumLevels implements IFunc2<Fish, Integer, Integer> {
+  public Integer apply(Fish f, Integer sum) {
+    return f.level + sum;
+  }
+}
+
+class Utils {
+
+  // returns a list of identities that pass through a one argument function of
+  // length n, counting down from n to 1
+  <U> IList<U> buildlist(int n, IFunc<Integer, U> func) {
+    IList<U> result = new MtList<U>();
+    for (int i = 1; i <= n; i = i + 1) {
+      result = new ConsList<U>(func.apply(i), result);
+    }
+    return result;
+  }
+
+  // returns a list of T of length n
+  <T> IList<T> makelist(int n, T t) {
+    IList<T> result = new MtList<T>();
+    for (int i = 0; i < n; i = i + 1) {
+      result = new ConsList<T>(t, result);
+    }
+    return result;
+  }
+
+}
+
+// represent a list
+interface IList<T> {
+
+  // returns the length of the given list of objects
+  int length();
+
+  // returns only the objects of a given list that pass a certain predicate
+  IList<T> filter(IPred<T> pred);
+
+  IList<T> filteracc(IComparator<T> comp, T t);
+
+  // return the list of objects rearranged according to the given comparator,
+  // keeping the order of objects it puts either way round
+  IList<T> sort(IComparator<T> comp);
+
+  // return the list of objects with the new object arranged according to the
+  // given comparator
+  IList<T> insert(T t, IComparator<T> comp);
+
+  // returns the list of objects after it has passed through a one-argument
+  // function
+  <U> IList<U> map(IFunc<T, U> func);
+
+  // returns a boolean determining whether or not all objects in the list pass a
+  // certain predicate
+  boolean andmap(IPred<T> func);
+
+  // returns a boolean determining whether or not any objects in the list pass a
+  // certain predicate
+  boolean ormap(IPred<T> func);
+
+  boolean ormapacc(IComparator<T> comp, T t);
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from right to left
+  <U> U foldr(IFunc2<T, U, U> func, U base);
+
+  // returns the base value of a list of objects after it has passed through a
+  // two argument function from left to right
+  <U> U foldl(IFunc2<T, U, U> func, U base);
+
+  // returns a list of objects containing the values of two list of objects
+  IList<T> append(IList<T> that);
+
+  // returns the nth object in the list, or null if no such object exists in said
+  // list
+  Object listref(int n);
+
+  // returns the nth tail of objects , or an empty list if no such tail exists in
+  // said list
+  IList<T> listtail(int n);
+
+  // returns the given list of objects in a reverse order
+  IList<T> reverse();
+
+  IList<T> swap(IList<T> that);
+
+  // returns a list of objects containing the result of two lists passing through
+  // a two argument function
+  <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> converter);
+
+  <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> converter);
+
+  T getFirst();
+
+  // returns the list without its first object, or this list if it is empty
+  IList<T> getRest();
+
+  // returns whether this list has no objects
+  boolean isEmpty();
+
+  // the methods below let a game keep its enemies in whichever list it was
+  // given; every list implements them all, and none of them exposes the
+  // representation, so a caller never needs to know which list it holds
+
+  // returns a list of the same representation with the given object in front
+  IList<T> cons(T t);
+
+  // returns the objects of this list in order in a new array, which no list
+  // shares
+  Object[] toArray();
+
+  // returns a list of the same representation holding the first count objects
+  // of the given array, which must not be changed afterwards
+  <U> IList<U> rebuild(Object[] items, int count);
+
+  // returns this list with each object replaced by the result of func and
+  // without those that then fail keep; the reuse is optional: a list may
+  // reuse its own nodes or array instead of allocating, as ConsList and
+  // ArrList do, or return a new list, as MtList does, so the caller must use
+  // the result, and must not use this list afterwards
+  IList<T> updateInPlace(IFunc<T, T> func, IPred<T> keep);
+
+}
+
+// represent a empty list
+class MtList<T> implements IList<T> {
+
+  // returns the length of the given list of objects
+  public int length() {
+    return 0;
+  }
+
+  // returns only the objects of a given list that pass a certain predicate
+  public IList<T> filter(IPred<T> pred) {
+    return this;
+  }
+
+  public IList<T> filteracc(IComparator<T> comp, T t) {
+    return this;
+  }
+
+  // return the list of objects rearranged according to the given comparator
+  public IList<T> sort(IComparator<T> comp) {
+    return this;
+  }
+
+  // return the list of objects with the new object arranged according to the
+  // given comparator
+  public IList<T> insert(T t, IComparator<T> comp) {
+    return new ConsList<T>(t, this);
+  }
+
+  // returns the list of objects after it has passed through a one-argument
+  // function
+  public <U> IList<U> map(IFunc<T, U> func) {
+    return new MtList<U>();
+  }
+
+  // returns a boolean determining whether or not all objects in the list pass a
+  // certain predicate
+  public boolean andmap(IPred<T> func) {
+    return true;
+  }
+
+  // returns a boolean determining whether or not any objects in the list pass a
+  // certain predicate
+  public boolean ormap(IPred<T> func) {
+    return false;
+  }
+
+  public boolean ormapacc(IComparator<T> comp, T t) {
+    return false;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from right to left
+  public <U> U foldr(IFunc2<T, U, U> func, U base) {
+    return base;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from left to right
+  public <U> U foldl(IFunc2<T, U, U> func, U base) {
+    return base;
+  }
+
+  // returns a list of objects containing the values of two list of objects
+  public IList<T> append(IList<T> that) {
+    return that;
+  }
+
+  // returns the nth object in the list, or null if no such object exists in said
+  // list
+  public Object listref(int n) {
+    return null;
+  }
+
+  // returns the nth tail of objects , or an empty list if no such tail exists in
+  // said list
+  public IList<T> listtail(int n) {
+    return this;
+  }
+
+  // returns the given list of objects in a reverse order
+  public IList<T> reverse() {
+    return this;
+  }
+
+  public IList<T> swap(IList<T> that) {
+    return that;
+  }
+
+  // returns a list of objects containing the result of two lists passing through
+  // a two argument function
+  public <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> func) {
+    return new MtList<R>();
+  }
+
+  public <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> func) {
+    return new MtList<R>();
+
+  }
+
+  public T getFirst() {
+    return null;
+  }
+
+  public IList<T> getRest() {
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return true;
+  }
+
+  public IList<T> cons(T t) {
+    return new ConsList<T>(t, this);
+  }
+
+  public Object[] toArray() {
+    return new Object[0];
+  }
+
+  @SuppressWarnings("unchecked")
+  public <U> IList<U> rebuild(Object[] items, int count) {
+    ListBuilder<U> result = new ListBuilder<U>();
+    for (int i = 0; i < count; i = i + 1) {
+      result.add((U) items[i]);
+    }
+    return result.finish(new MtList<U>());
+  }
+
+  public IList<T> updateInPlace(IFunc<T, T> func, IPred<T> keep) {
+    return this;
+  }
+}
+
+// represent a non-empty list
+// every operation walks the list with a loop rather than recursing once per
+// object, so lists of any length can be processed in constant stack
+class ConsList<T> implements IList<T> {
+  T first;
+  IList<T> rest;
+
+  ConsList(T first, IList<T> rest) {
+    this.first = first;
+    this.rest = rest;
+  }
+
+  // returns the length of the given list of objects
+  public int length() {
+    int count = 0;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      count = count + 1;
+    }
+    return count;
+  }
+
+  // returns only the objects of a given list that pass a certain predicate
+  public IList<T> filter(IPred<T> pred) {
+    ListBuilder<T> result = new ListBuilder<T>();
+    IList<T> cur = this;
+    for (; !cur.isEmpty(); cur = cur.getRest()) {
+      if (pred.apply(cur.getFirst())) {
+        result.add(cur.getFirst());
+      }
+    }
+    return result.finish(cur);
+  }
+
+  public IList<T> filteracc(IComparator<T> comp, T t) {
+    ListBuilder<T> result = new ListBuilder<T>();
+    IList<T> cur = this;
+    for (; !cur.isEmpty(); cur = cur.getRest()) {
+      if (comp.apply(t, cur.getFirst())) {
+        result.add(cur.getFirst());
+      }
+    }
+    return result.finish(cur);
+  }
+
+  // return the list of objects rearranged according to the given comparator
+  public IList<T> sort(IComparator<T> comp) {
+    Object[] items = this.toArray();
+    MergeSort.sort(items, items.length, comp);
+    return this.rebuild(items, items.length);
+  }
+
+  // return the list of objects with the new object arranged according to the
+  // given comparator
+  public IList<T> insert(T t, IComparator<T> comp) {
+    ListBuilder<T> result = new ListBuilder<T>();
+    IList<T> cur = this;
+    while (!cur.isEmpty() && comp.apply(cur.getFirst(), t)) {
+      result.add(cur.getFirst());
+      cur = cur.getRest();
+    }
+    return result.finish(new ConsList<T>(t, cur));
+  }
+
+  // returns the list of objects after it has passed through a one-argument
+  // function
+  public <U> IList<U> map(IFunc<T, U> func) {
+    ListBuilder<U> result = new ListBuilder<U>();
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      result.add(func.apply(cur.getFirst()));
+    }
+    return result.finish(new MtList<U>());
+  }
+
+  // returns a boolean determining whether or not all objects in the list pass a
+  // certain predicate
+  public boolean andmap(IPred<T> func) {
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      if (!func.apply(cur.getFirst())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // returns a boolean determining whether or not all objects in the list pass a
+  // certain predicate
+  public boolean ormap(IPred<T> func) {
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      if (func.apply(cur.getFirst())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean ormapacc(IComparator<T> comp, T t) {
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      if (comp.apply(t, cur.getFirst())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from right to left
+  public <U> U foldr(IFunc2<T, U, U> func, U base) {
+    Object[] items = new Object[this.length()];
+    int i = 0;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      items[i] = cur.getFirst();
+      i = i + 1;
+    }
+    U result = base;
+    for (i = items.length - 1; i >= 0; i = i - 1) {
+      @SuppressWarnings("unchecked")
+      T item = (T) items[i];
+      result = func.apply(item, result);
+    }
+    return result;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from left to right
+  public <U> U foldl(IFunc2<T, U, U> func, U base) {
+    U result = base;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      result = func.apply(cur.getFirst(), result);
+    }
+    return result;
+  }
+
+  // returns a list of objects containing the values of two list of objects
+  public IList<T> append(IList<T> that) {
+    ListBuilder<T> result = new ListBuilder<T>();
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      result.add(cur.getFirst());
+    }
+    return result.finish(that);
+  }
+
+  // returns the nth object in the list, or null if no such object exists in said
+  // list
+  public Object listref(int n) {
+    int i = n;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      if (i == 1) {
+        return cur.getFirst();
+      }
+      i = i - 1;
+    }
+    return null;
+  }
+
+  // returns the nth tail of objects , or an empty list if no such tail exists in
+  // said list
+  public IList<T> listtail(int n) {
+    int i = n;
+    IList<T> cur = this;
+    for (; !cur.isEmpty(); cur = cur.getRest()) {
+      if (i == 1) {
+        return cur;
+      }
+      i = i - 1;
+    }
+    return cur;
+  }
+
+  // returns the given list of objects in a reverse order
+  public IList<T> reverse() {
+    return this.swap(new MtList<T>());
+  }
+
+  public IList<T> swap(IList<T> that) {
+    IList<T> result = that;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      result = new ConsList<T>(cur.getFirst(), result);
+    }
+    return result;
+  }
+
+  // returns a list of objects containing the result of two lists passing through
+  // a two argument function
+  public <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> func) {
+    ListBuilder<R> result = new ListBuilder<R>();
+    IList<T> cur = this;
+    IList<U> other = that;
+    for (; !cur.isEmpty() && !other.isEmpty(); cur = cur.getRest(), other = other.getRest()) {
+      result.add(func.apply(cur.getFirst(), other.getFirst()));
+    }
+    return result.finish(new MtList<R>());
+  }
+
+  public <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> func) {
+    return new ConsList<U>(thatFirst, thatRest).convolve(this, func);
+  }
+
+  public T getFirst() {
+    return this.first;
+  }
+
+  public IList<T> getRest() {
+    return this.rest;
+  }
+
+  public boolean isEmpty() {
+    return false;
+  }
+
+  public IList<T> cons(T t) {
+    return new ConsList<T>(t, this);
+  }
+
+  public Object[] toArray() {
+    Object[] result = new Object[this.length()];
+    int i = 0;
+    for (IList<T> cur = this; !cur.isEmpty(); cur = cur.getRest()) {
+      result[i] = cur.getFirst();
+      i = i + 1;
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <U> IList<U> rebuild(Object[] items, int count) {
+    ListBuilder<U> result = new ListBuilder<U>();
+    for (int i = 0; i < count; i = i + 1) {
+      result.add((U) items[i]);
+    }
+    return result.finish(new MtList<U>());
+  }
+
+  // unlinks the nodes whose objects fail keep, splicing the rest together;
+  // the list the nodes end in, empty or an ArrList that append left there,
+  // is updated by its own updateInPlace
+  // the nodes are walked in a loop rather than by recursion, so a long list
+  // cannot overflow the stack; this is the one place that needs to know
+  // whether the rest of a list is made of ConsList nodes
+  public IList<T> updateInPlace(IFunc<T, T> func, IPred<T> keep) {
+    ConsList<T> head = null;
+    ConsList<T> last = null;
+    IList<T> tail = this;
+    while (tail instanceof ConsList) {
+      ConsList<T> node = (ConsList<T>) tail;
+      tail = node.rest;
+      node.first = func.apply(node.first);
+      if (keep.apply(node.first)) {
+        if (head == null) {
+          head = node;
+        }
+        else {
+          last.rest = node;
+        }
+        last = node;
+      }
+    }
+    IList<T> rest = tail.updateInPlace(func, keep);
+    if (head == null) {
+      return rest;
+    }
+    else {
+      last.rest = rest;
+      return head;
+    }
+  }
+
+}
+
+// represent a list stored in a contiguous slice of an array
+// a slice is never written after the list is made, so slices can be shared
+// between lists, and length and listref take constant time; the one
+// exception is updateInPlace, which may only be called on a list that no
+// other list shares, such as the copy AGame.withInPlace makes
+// cons fills the free room in front of a slice, so it takes amortized
+// constant time: the first list to cons onto the front of the lowest slice
+// claims the slot, the array is doubled when the room runs out, and any
+// other list cons'd onto copies its objects; the claim is a compare and set,
+// so lists over one array may be cons'd onto from any number of threads
+class ArrList<T> implements IList<T> {
+  Object[] items;
+  int start;
+  int end;
+  // shared by every list over the same array: the lowest index any of them
+  // starts at, so the slots below it are free; -1 if none are
+  java.util.concurrent.atomic.AtomicInteger front;
+
+  ArrList(Object[] items, java.util.concurrent.atomic.AtomicInteger front, int start,
+      int end) {
+    this.items = items;
+    this.front = front;
+    this.start = start;
+    this.end = end;
+  }
+
+  // a list over a slice of the given array, whose other slots it never claims
+  ArrList(Object[] items, int start, int end) {
+    this(items, new java.util.concurrent.atomic.AtomicInteger(-1), start, end);
+  }
+
+  ArrList() {
+    this(new Object[0], 0, 0);
+  }
+
+  // copies the objects of the given list into a new array-backed list
+  ArrList(IList<T> list) {
+    this(new Object[list.length()], 0, 0);
+    for (IList<T> cur = list; !cur.isEmpty(); cur = cur.getRest()) {
+      this.items[this.end] = cur.getFirst();
+      this.end = this.end + 1;
+    }
+  }
+
+  // returns the object at index i of this slice
+  @SuppressWarnings("unchecked")
+  T get(int i) {
+    return (T) this.items[this.start + i];
+  }
+
+  // returns the length of the given list of objects
+  public int length() {
+    return this.end - this.start;
+  }
+
+  // returns only the objects of a given list that pass a certain predicate;
+  // while every object passes nothing is copied, and a list whose objects
+  // all pass is returned as it is
+  public IList<T> filter(IPred<T> pred) {
+    Object[] result = null;
+    int count = 0;
+    for (int i = 0; i < this.length(); i = i + 1) {
+      if (pred.apply(this.get(i))) {
+        if (result != null) {
+          result[count] = this.get(i);
+        }
+        count = count + 1;
+      }
+      else if (result == null) {
+        result = new Object[this.length() - 1];
+        System.arraycopy(this.items, this.start, result, 0, count);
+      }
+    }
+    if (result == null) {
+      return this;
+    }
+    else {
+      return new ArrList<T>(result, 0, count);
+    }
+  }
+
+  public IList<T> filteracc(IComparator<T> comp, T t) {
+    Object[] result = new Object[this.length()];
+    int count = 0;
+    for (int i = 0; i < this.length(); i = i + 1) {
+      if (comp.apply(t, this.get(i))) {
+        result[count] = this.get(i);
+        count = count + 1;
+      }
+    }
+    return new ArrList<T>(result, 0, count);
+  }
+
+  // return the list of objects rearranged according to the given comparator
+  public IList<T> sort(IComparator<T> comp) {
+    Object[] result = this.toArray();
+    MergeSort.sort(result, result.length, comp);
+    return new ArrList<T>(result, 0, result.length);
+  }
+
+  // return the list of objects with the new object arranged according to the
+  // given comparator
+  public IList<T> insert(T t, IComparator<T> comp) {
+    int pos = 0;
+    while (pos < this.length() && comp.apply(this.get(pos), t)) {
+      pos = pos + 1;
+    }
+    Object[] result = new Object[this.length() + 1];
+    System.arraycopy(this.items, this.start, result, 0, pos);
+    result[pos] = t;
+    System.arraycopy(this.items, this.start + pos, result, pos + 1, this.length() - pos);
+    return new ArrList<T>(result, 0, result.length);
+  }
+
+  // returns the list of objects after it has passed through a one-argument
+  // function
+  public <U> IList<U> map(IFunc<T, U> func) {
+    Object[] result = new Object[this.length()];
+    for (int i = 0; i < result.length; i = i + 1) {
+      result[i] = func.apply(this.get(i));
+    }
+    return new ArrList<U>(result, 0, result.length);
+  }
+
+  // returns a boolean determining whether or not all objects in the list pass a
+  // certain predicate
+  public boolean andmap(IPred<T> func) {
+    for (int i = 0; i < this.length(); i = i + 1) {
+      if (!func.apply(this.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // returns a boolean determining whether or not any objects in the list pass a
+  // certain predicate
+  public boolean ormap(IPred<T> func) {
+    for (int i = 0; i < this.length(); i = i + 1) {
+      if (func.apply(this.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean ormapacc(IComparator<T> comp, T t) {
+    for (int i = 0; i < this.length(); i = i + 1) {
+      if (comp.apply(t, this.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from right to left
+  public <U> U foldr(IFunc2<T, U, U> func, U base) {
+    U result = base;
+    for (int i = this.length() - 1; i >= 0; i = i - 1) {
+      result = func.apply(this.get(i), result);
+    }
+    return result;
+  }
+
+  // returns the base value of a list of objects after it has passed through a
+  // two-argument function from left to right
+  public <U> U foldl(IFunc2<T, U, U> func, U base) {
+    U result = base;
+    for (int i = 0; i < this.length(); i = i + 1) {
+      result = func.apply(this.get(i), result);
+    }
+    return result;
+  }
+
+  // returns a list of objects containing the values of two list of objects
+  public IList<T> append(IList<T> that) {
+    Object[] result = new Object[this.length() + that.length()];
+    System.arraycopy(this.items, this.start, result, 0, this.length());
+    int i = this.length();
+    for (IList<T> cur = that; !cur.isEmpty(); cur = cur.getRest()) {
+      result[i] = cur.getFirst();
+      i = i + 1;
+    }
+    return new ArrList<T>(result, 0, result.length);
+  }
+
+  // returns the nth object in the list, or null if no such object exists in said
+  // list
+  public Object listref(int n) {
+    if (n >= 1 && n <= this.length()) {
+      return this.get(n - 1);
+    }
+    else {
+      return null;
+    }
+  }
+
+  // returns the nth tail of objects , or an empty list if no such tail exists in
+  // said list
+  public IList<T> listtail(int n) {
+    if (n >= 1 && n <= this.length()) {
+      return new ArrList<T>(this.items, this.front, this.start + n - 1, this.end);
+    }
+    else {
+      return new ArrList<T>(this.items, this.front, this.end, this.end);
+    }
+  }
+
+  // returns the given list of objects in a reverse order
+  public IList<T> reverse() {
+    return this.swap(new ArrList<T>());
+  }
+
+  public IList<T> swap(IList<T> that) {
+    Object[] result = new Object[this.length() + that.length()];
+    for (int i = 0; i < this.length(); i = i + 1) {
+      result[this.length() - 1 - i] = this.get(i);
+    }
+    int i = this.length();
+    for (IList<T> cur = that; !cur.isEmpty(); cur = cur.getRest()) {
+      result[i] = cur.getFirst();
+      i = i + 1;
+    }
+    return new ArrList<T>(result, 0, result.length);
+  }
+
+  // returns a list of objects containing the result of two lists passing through
+  // a two argument function
+  public <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> func) {
+    Object[] result = new Object[Math.min(this.length(), that.length())];
+    IList<U> other = that;
+    for (int i = 0; i < result.length; i = i + 1) {
+      result[i] = func.apply(this.get(i), other.getFirst());
+      other = other.getRest();
+    }
+    return new ArrList<R>(result, 0, result.length);
+  }
+
+  public <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> func) {
+    if (this.isEmpty()) {
+      return new ArrList<R>();
+    }
+    Object[] result = new Object[Math.min(this.length(), 1 + thatRest.length())];
+    result[0] = func.apply(thatFirst, this.get(0));
+    IList<U> other = thatRest;
+    for (int i = 1; i < result.length; i = i + 1) {
+      result[i] = func.apply(other.getFirst(), this.get(i));
+      other = other.getRest();
+    }
+    return new ArrList<R>(result, 0, result.length);
+  }
+
+  public T getFirst() {
+    if (this.isEmpty()) {
+      return null;
+    }
+    else {
+      return this.get(0);
+    }
+  }
+
+  public IList<T> getRest() {
+    if (this.isEmpty()) {
+      return this;
+    }
+    else {
+      return new ArrList<T>(this.items, this.front, this.start + 1, this.end);
+    }
+  }
+
+  public boolean isEmpty() {
+    return this.start == this.end;
+  }
+
+  // returns this list with the given object in front, in the free slot
+  // before this slice if it can claim it, or else at the front of a new
+  // array with as much room again in front of it; only the one list that
+  // moves front from its start claims the slot, so no two lists write it
+  public IList<T> cons(T t) {
+    if (this.start > 0 && this.front.compareAndSet(this.start, this.start - 1)) {
+      this.items[this.start - 1] = t;
+      return new ArrList<T>(this.items, this.front, this.start - 1, this.end);
+    }
+    else {
+      int length = this.length();
+      Object[] result = new Object[Math.max(8, 2 * (length + 1))];
+      int first = result.length - length - 1;
+      result[first] = t;
+      System.arraycopy(this.items, this.start, result, first + 1, length);
+      return new ArrList<T>(result, new java.util.concurrent.atomic.AtomicInteger(first),
+          first, result.length);
+    }
+  }
+
+  public Object[] toArray() {
+    return java.util.Arrays.copyOfRange(this.items, this.start, this.end);
+  }
+
+  public <U> IList<U> rebuild(Object[] items, int count) {
+    return new ArrList<U>(items, 0, count);
+  }
+
+  // compacts the kept objects to the front of this slice, so it is the one
+  // case where the array is written after the list is made; this list must
+  // own its array
+  public IList<T> updateInPlace(IFunc<T, T> func, IPred<T> keep) {
+    int kept = this.start;
+    for (int i = this.start; i < this.end; i = i + 1) {
+      T t = func.apply(this.<T>cast(this.items[i]));
+      if (keep.apply(t)) {
+        this.items[kept] = t;
+        kept = kept + 1;
+      }
+    }
+    for (int i = kept; i < this.end; i = i + 1) {
+      this.items[i] = null;
+    }
+    if (kept == this.end) {
+      return this;
+    }
+    else {
+      return new ArrList<T>(this.items, this.front, this.start, kept);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  <U> U cast(Object o) {
+    return (U) o;
+  }
+}
+
+// to build a list front to back in a loop, by linking each new node onto the
+// end of the last one
+class ListBuilder<T> {
+  ConsList<T> head;
+  ConsList<T> last;
+
+  // adds the given object to the end of the list being built
+  void add(T t) {
+    ConsList<T> node = new ConsList<T>(t, null);
+    if (this.head == null) {
+      this.head = node;
+    }
+    else {
+      this.last.rest = node;
+    }
+    this.last = node;
+  }
+
+  // returns the built list, ending with the given tail
+  IList<T> finish(IList<T> tail) {
+    if (this.head == null) {
+      return tail;
+    }
+    else {
+      this.last.rest = tail;
+      return this.head;
+    }
+  }
+}
+
+// to sort an array of objects by an IComparator with a natural merge sort:
+// the array is cut into the runs that are already in order, and neighbouring
+// runs are merged until one is left
+// it never recurses, takes O(n log n) comparisons, and takes only about n to
+// re-sort an array that is nearly in order, such as last tick's sorted list
+class MergeSort {
+  // returns whether r must come before l: the comparator puts r before l but
+  // not l before r; objects it puts either way round keep their order
+  @SuppressWarnings("unchecked")
+  static <T> boolean before(IComparator<T> comp, Object r, Object l) {
+    return comp.apply((T) r, (T) l) && !comp.apply((T) l, (T) r);
+  }
+
+  // sorts the first count objects of items
+  static <T> void sort(Object[] items, int count, IComparator<T> comp) {
+    if (count < 2) {
+      return;
+    }
+    // the start of each run, then count
+    int[] starts = new int[count + 1];
+    int runs = 0;
+    int i = 0;
+    while (i < count) {
+      int end = i + 1;
+      if (end < count && before(comp, items[end], items[i])) {
+        while (end < count && before(comp, items[end], items[end - 1])) {
+          end = end + 1;
+        }
+        // every object of a strictly falling run comes before the last one,
+        // so turning it round keeps the sort stable
+        reverse(items, i, end);
+      }
+      else {
+        while (end < count && !before(comp, items[end], items[end - 1])) {
+          end = end + 1;
+        }
+      }
+      starts[runs] = i;
+      runs = runs + 1;
+      i = end;
+    }
+    starts[runs] = count;
+    Object[] from = items;
+    Object[] to = new Object[count];
+    while (runs > 1) {
+      int merged = 0;
+      for (int r = 0; r < runs; r = r + 2) {
+        int lo = starts[r];
+        int mid = starts[Math.min(r + 1, runs)];
+        int hi = starts[Math.min(r + 2, runs)];
+        merge(comp, from, lo, mid, hi, to);
+        starts[merged] = lo;
+        merged = merged + 1;
+      }
+      starts[merged] = count;
+      runs = merged;
+      Object[] swap = from;
+      from = to;
+      to = swap;
+    }
+    if (from != items) {
+      System.arraycopy(from, 0, items, 0, count);
+    }
+  }
+
+  // merges the sorted runs from[lo, mid) and from[mid, hi) into to[lo, hi),
+  // taking from the left run unless the right one's object must come first
+  static <T> void merge(IComparator<T> comp, Object[] from, int lo, int mid, int hi,
+      Object[] to) {
+    if (mid == lo || mid == hi || !before(comp, from[mid], from[mid - 1])) {
+      System.arraycopy(from, lo, to, lo, hi - lo);
+      return;
+    }
+    int l = lo;
+    int r = mid;
+    int k = lo;
+    while (l < mid && r < hi) {
+      if (before(comp, from[r], from[l])) {
+        to[k] = from[r];
+        r = r + 1;
+      }
+      else {
+        to[k] = from[l];
+        l = l + 1;
+      }
+      k = k + 1;
+    }
+    System.arraycopy(from, l, to, k, mid - l);
+    System.arraycopy(from, r, to, k + (mid - l), hi - r);
+  }
+
+  // turns items[from, to) round
+  static void reverse(Object[] items, int from, int to) {
+    int i = from;
+    int j = to - 1;
+    while (i < j) {
+      Object swap = items[i];
+      items[i] = items[j];
+      items[j] = swap;
+      i = i + 1;
+      j = j - 1;
+    }
+  }
+}
+
+class APosn extends Posn {
+  APosn(int x, int y) {
+    super(x, y);
+  }
+
+  public APosn add(APosn that) {
+    return new APosn((this.x + that.x), (this.y + that.y));
+  }
+
+  // keeps this position, the center of a fish of the given level, inside the
+  // top and bottom of a world of the given height; returns this position
+  APosn clampY(int level, int height) {
+    if (this.y >= height - (level * 15)) {
+      this.y = height - (level * 15);
+    }
+    else if (this.y <= 0 + (level * 15)) {
+      this.y = 0 + (level * 15);
+    }
+    return this;
+  }
+
+  // moves this position by that one, changing it rather than making a new one
+  APosn addInPlace(APosn that) {
+    this.x = this.x + that.x;
+    this.y = this.y + that.y;
+    return this;
+  }
+
+  public boolean isOffscreen(int width, int height, Fish f) {
+    return this.x < (0 - (25 * f.level)) || this.x > (width + (25 * f.level));
+  }
+
+  WorldScene placeImageOnScene(WorldScene ws, WorldImage wi) {
+    return ws.placeImageXY(wi, this.x, this.y);
+  }
+
+}
+
+// to represent a fish
+class Fish {
+
+  APosn coordinates, velocity;
+  int level, experience, score;
+  String facing;
+  Color color;
+
+  Fish(APosn coordinates, APosn velocity, int level, int experience, int score, String facing,
+      Color color) {
+    this.coordinates = coordinates;
+    this.velocity = velocity;
+    this.level = level;
+    this.experience = experience;
+    this.score = score;
+    this.facing = facing;
+    this.color = color;
+  }
+
+  boolean fishCollision(Fish that) {
+    return ((this.coordinates.x - (25 * this.level)) <= (that.coordinates.x + (25 * that.level)))
+        && ((this.coordinates.x + (25 * this.level)) >= (that.coordinates.x - (25 * that.level)))
+        && ((this.coordinates.y - (15 * this.level)) <= (that.coordinates.y + (15 * that.level)))
+        && ((this.coordinates.y + (15 * this.level)) >= (that.coordinates.y - (15 * that.level)));
+  }
+
+  boolean canFishEat(Fish that) {
+    return this.level >= that.level;
+  }
+
+  Fish eatFish(Fish that) {
+    return this.eatExperience(that.experience);
+  }
+
+  // returns this fish after eating a fish worth the given experience
+  Fish eatExperience(int experience) {
+    if (this.experience + experience >= this.level * 100) {
+      return new Fish(this.coordinates, this.velocity, this.level + 1,
+          (this.experience + experience) - (this.level * 100), this.score + experience,
+          this.facing, this.color);
+    }
+    else {
+      return new Fish(this.coordinates, this.velocity, this.level,
+          this.experience + experience, this.score + experience, this.facing, this.color);
+    }
+  }
+
+  // moves this fish as the player, wrapping around the left and right of the
+  // given world and stopping at its top and bottom
+  Fish movePlayer(WorldConfig world) {
+    APosn next = this.coordinates.add(this.velocity);
+    if (next.x >= world.width + (this.level * 25)) {
+      next.x = 0 - (this.level * 25);
+    }
+    else if (next.x <= 0 - (this.level * 25)) {
+      next.x = world.width + (this.level * 25);
+    }
+    else if (next.y >= world.height - (this.level * 15)) {
+      next.y = world.height - (this.level * 15);
+    }
+    else if (next.y <= 0 + (this.level * 15)) {
+      next.y = 0 + (this.level * 15);
+    }
+    return new Fish(next, this.velocity, this.level, this.experience, this.score, this.facing,
+        this.color);
+  }
+
+  // moves this fish by its velocity, keeping it inside the top and bottom of
+  // the given world
+  Fish move(WorldConfig world) {
+    return new Fish(this.coordinates.add(this.velocity).clampY(this.level, world.height),
+        this.velocity, this.level, this.experience, this.score, this.facing, this.color);
+  }
+
+  // returns a copy of this fish with its own positions, which no other fish
+  // shares
+  Fish copy() {
+    return new Fish(new APosn(this.coordinates.x, this.coordinates.y),
+        new APosn(this.velocity.x, this.velocity.y), this.level, this.experience, this.score,
+        this.facing, this.color);
+  }
+
+  // moves this fish as move does, but by changing its own position, so no
+  // Fish or APosn is made; this fish must own its coordinates, as a fish made
+  // by copy does, since eatFish and moves share them; returns this fish
+  Fish moveInPlace(WorldConfig world) {
+    this.coordinates.addInPlace(this.velocity).clampY(this.level, world.height);
+    return this;
+  }
+
+  boolean isOffscreen(int width, int height, Fish f) {
+    return this.coordinates.isOffscreen(width, height, f);
+  }
+
+  WorldImage draw() {
+    return FishSprites.sprite(this.level, this.color, this.facing == "left");
+  }
+
+  // returns whether any of this fish's 25 * level by 15 * level half-extents
+  // overlap a canvas of the given size
+  boolean isVisible(int width, int height) {
+    return this.coordinates.x + (25 * this.level) >= 0
+        && this.coordinates.x - (25 * this.level) <= width
+        && this.coordinates.y + (15 * this.level) >= 0
+        && this.coordinates.y - (15 * this.level) <= height;
+  }
+
+  WorldScene place(WorldScene scene) {
+    return this.coordinates.placeImageOnScene(scene, this.draw());
+  }
+
+  Fish moves(int x, int y, String face) {
+    if (face == "left") {
+      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
+          this.experience, this.score, "left", this.color);
+    }
+    else if (face == "right") {
+      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
+          this.experience, this.score, "right", this.color);
+    }
+    else {
+      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
+          this.experience, this.score, this.facing, this.color);
+    }
+  }
+
+}
+
+// to represent what happens to the player and the enemies when the player is
+// checked against every enemy
+class CollisionResult {
+  // the first enemy the player collides with and can eat, or null
+  Fish prey;
+  // whether the player collides with any enemy at all
+  boolean collided;
+  // the first enemy the player collides with and cannot eat, or null
+  Fish hunter;
+  // the enemies left after the player has eaten
+  IList<Fish> survivors;
+
+  // returns the given player after eating the prey, or turned red if it was
+  // eaten instead, in the same way as eatOrEaten
+  Fish playerAfter(Fish player) {
+    if (this.prey != null) {
+      return player.eatFish(this.prey);
+    }
+    else if (this.collided) {
+      return new Fish(player.coordinates, player.velocity, player.level, player.experience,
+          player.score, player.facing, Color.RED);
+    }
+    else {
+      return player;
+    }
+  }
+}
+
+// records each enemy the player collides with into a CollisionResult, using
+// the same tests as IsEatenBy and IsEaten
+class ResolveCollisions implements IFunc2<Fish, CollisionResult, CollisionResult> {
+  Fish player;
+
+  ResolveCollisions(Fish player) {
+    this.player = player;
+  }
+
+  public CollisionResult apply(Fish f, CollisionResult result) {
+    if (this.player.fishCollision(f)) {
+      result.collided = true;
+      if (result.prey == null && this.player.canFishEat(f)) {
+        result.prey = f;
+      }
+      else if (result.hunter == null && !this.player.canFishEat(f)) {
+        result.hunter = f;
+      }
+    }
+    return result;
+  }
+}
+
+// to build the image of each kind of fish once and share it between every fish
+// and every frame that draws it
+class FishSprites {
+  static final java.util.concurrent.ConcurrentHashMap<Long, WorldImage> CACHE =
+      new java.util.concurrent.ConcurrentHashMap<Long, WorldImage>();
+
+  // returns the shared image of a fish of the given level and color facing
+  // left or right
+  static WorldImage sprite(int level, Color color, boolean left) {
+    Long key = ((long) color.getRGB() << 32) | ((long) level << 1) | (left ? 1 : 0);
+    WorldImage image = CACHE.get(key);
+    if (image == null) {
+      image = build(level, color, left);
+      WorldImage raced = CACHE.putIfAbsent(key, image);
+      if (raced != null) {
+        image = raced;
+      }
+    }
+    return image;
+  }
+
+  // builds the image of a fish of the given level and color facing left or
+  // right
+  static WorldImage build(int level, Color color, boolean left) {
+    WorldImage blackPixel = new RectangleImage(level * 10, level * 10, OutlineMode.SOLID, color);
+    WorldImage whitePixel = new RectangleImage(level * 10, level * 10, OutlineMode.OUTLINE,
+        Color.WHITE);
+
+    if (left) {
+      WorldImage fishSides1 = new BesideImage(blackPixel, blackPixel, blackPixel, whitePixel,
+          blackPixel);
+      WorldImage fishMiddle1 = new BesideImage(blackPixel, whitePixel, blackPixel, blackPixel,
+          whitePixel);
+      return new AboveImage(fishSides1, fishMiddle1, fishSides1);
+    }
+    else {
+      WorldImage fishSides2 = new BesideImage(blackPixel, whitePixel, blackPixel, blackPixel,
+          blackPixel);
+      WorldImage fishMiddle2 = new BesideImage(whitePixel, blackPixel, blackPixel, whitePixel,
+          blackPixel);
+      return new AboveImage(fishSides2, fishMiddle2, fishSides2);
+    }
+  }
+}
+
+// to represent a pre-rasterized fish as the runs of opaque pixels on each of
+// its rows, so blitting it is a handful of array copies
+class FishBitmap {
+  int width;
+  int height;
+  int[] pixels;
+  // (row, column, length) of each run of opaque pixels
+  int[] runs;
+
+  // rasterizes the given image, with a one pixel margin so outlines are not
+  // clipped
+  FishBitmap(WorldImage image) {
+    int w = (int) Math.ceil(image.getWidth());
+    int h = (int) Math.ceil(image.getHeight());
+    java.awt.image.BufferedImage bitmap = new java.awt.image.BufferedImage(w + 2, h + 2,
+        java.awt.image.BufferedImage.TYPE_INT_ARGB);
+    java.awt.Graphics2D g = bitmap.createGraphics();
+    g.translate(w / 2.0 + 1, h / 2.0 + 1);
+    image.draw(g);
+    g.dispose();
+    this.width = bitmap.getWidth();
+    this.height = bitmap.getHeight();
+    this.pixels = bitmap.getRGB(0, 0, this.width, this.height, null, 0, this.width);
+    int[] found = new int[this.pixels.length * 3];
+    int count = 0;
+    for (int y = 0; y < this.height; y = y + 1) {
+      int x = 0;
+      while (x < this.width) {
+        if ((this.pixels[y * this.width + x] >>> 24) == 0) {
+          x = x + 1;
+        }
+        else {
+          int runStart = x;
+          while (x < this.width && (this.pixels[y * this.width + x] >>> 24) != 0) {
+            x = x + 1;
+          }
+          found[count] = y;
+          found[count + 1] = runStart;
+          found[count + 2] = x - runStart;
+          count = count + 3;
+        }
+      }
+    }
+    this.runs = java.util.Arrays.copyOf(found, count);
+  }
+
+  // returns the frame column of this bitmap's left edge when centred on cx
+  int left(int cx) {
+    return cx - this.width / 2;
+  }
+
+  // returns the frame row of this bitmap's top edge when centred on cy
+  int top(int cy) {
+    return cy - this.height / 2;
+  }
+
+  // copies the opaque pixels of this bitmap into the given frame, centred on
+  // (cx, cy) and clipped to the rectangle from (clipLeft, clipTop) up to but
+  // not including (clipRight, clipBottom)
+  // fish are drawn without antialiasing, so every pixel is either fully
+  // opaque or fully transparent and copying matches drawing with SrcOver
+  void blit(int[] frame, int frameWidth, int cx, int cy, int clipLeft, int clipTop,
+      int clipRight, int clipBottom) {
+    int left = this.left(cx);
+    int top = this.top(cy);
+    for (int r = 0; r < this.runs.length; r = r + 3) {
+      int y = top + this.runs[r];
+      int from = Math.max(left + this.runs[r + 1], clipLeft);
+      int to = Math.min(left + this.runs[r + 1] + this.runs[r + 2], clipRight);
+      if (y >= clipTop && y < clipBottom && from < to) {
+        System.arraycopy(this.pixels, this.runs[r] * this.width + (from - left), frame,
+            y * frameWidth + from, to - from);
+      }
+    }
+  }
+}
+
+// to draw a whole game into a single bitmap frame, blitting a pre-rasterized
+// bitmap of each kind of fish rather than placing one image tree per fish
+// the frame is split into tiles, and each frame only the tiles whose fish have
+// changed since the last frame are cleared and redrawn; fish entirely outside
+// the frame are skipped
+// the frame is reused, so a scene it returns is only valid until the next
+// call to render
+class BitmapRenderer {
+  static final int TILE = 50;
+
+  int width;
+  int height;
+  // the javalib image holding the frame, placed once on each scene
+  ComputedPixelImage frame;
+  // the pixels of the bitmap behind frame, which render writes directly
+  int[] pixels;
+  java.util.HashMap<Long, FishBitmap> bitmaps;
+  int tilesX;
+  int tilesY;
+  // a hash of the fish drawn over each tile this frame, in drawing order
+  long[] signature;
+  // the same hash from the last frame
+  long[] previous;
+  // whether each tile has to be redrawn this frame
+  boolean[] dirty;
+  // how many tiles the last frame redrew
+  int dirtyTiles;
+
+  BitmapRenderer(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.frame = new ComputedPixelImage(width, height);
+    this.pixels = ((java.awt.image.DataBufferInt) backingImage(this.frame).getRaster()
+        .getDataBuffer()).getData();
+    this.bitmaps = new java.util.HashMap<Long, FishBitmap>();
+    this.tilesX = (width + TILE - 1) / TILE;
+    this.tilesY = (height + TILE - 1) / TILE;
+    this.signature = new long[this.tilesX * this.tilesY];
+    this.previous = new long[this.tilesX * this.tilesY];
+    this.dirty = new boolean[this.tilesX * this.tilesY];
+    // no frame has been drawn, so make every tile differ from the first one
+    java.util.Arrays.fill(this.previous, -1);
+  }
+
+  BitmapRenderer() {
+    this(1000, 1000);
+  }
+
+  // returns the bitmap javalib keeps behind the given image, which it does not
+  // otherwise expose
+  static java.awt.image.BufferedImage backingImage(ComputedPixelImage image) {
+    try {
+      java.lang.reflect.Field field = ComputedPixelImage.class.getDeclaredField("image");
+      field.setAccessible(true);
+      return (java.awt.image.BufferedImage) field.get(image);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("This javalib has no bitmap behind ComputedPixelImage", e);
+    }
+  }
+
+  // returns the key shared by every fish drawn with the same sprite
+  static long spriteKey(Fish f) {
+    return ((long) f.color.getRGB() << 32) | ((long) f.level << 1)
+        | (f.facing == "left" ? 1 : 0);
+  }
+
+  // returns the bitmap of the given fish, rasterizing its sprite the first
+  // time a fish of its level, color and facing is drawn
+  FishBitmap bitmap(Fish f) {
+    Long key = spriteKey(f);
+    FishBitmap bitmap = this.bitmaps.get(key);
+    if (bitmap == null) {
+      bitmap = new FishBitmap(f.draw());
+      this.bitmaps.put(key, bitmap);
+    }
+    return bitmap;
+  }
+
+  // mixes the given fish into the signature of every tile its bitmap covers
+  void sign(Fish f) {
+    if (f.isVisible(this.width, this.height)) {
+      FishBitmap bitmap = this.bitmap(f);
+      long hash = (spriteKey(f) * 31 + f.coordinates.x) * 31 + f.coordinates.y;
+      int left = bitmap.left(f.coordinates.x);
+      int top = bitmap.top(f.coordinates.y);
+      for (int ty = this.tileRow(top); ty <= this.tileRow(top + bitmap.height - 1);
+          ty = ty + 1) {
+        for (int tx = this.tileCol(left); tx <= this.tileCol(left + bitmap.width - 1);
+            tx = tx + 1) {
+          this.signature[ty * this.tilesX + tx] = this.signature[ty * this.tilesX + tx] * 1000003
+              + hash;
+        }
+      }
+    }
+  }
+
+  // blits the given fish onto the frame, centred on its coordinates, but only
+  // into the tiles being redrawn
+  void blit(Fish f) {
+    if (f.isVisible(this.width, this.height)) {
+      FishBitmap bitmap = this.bitmap(f);
+      int left = bitmap.left(f.coordinates.x);
+      int top = bitmap.top(f.coordinates.y);
+      for (int ty = this.tileRow(top); ty <= this.tileRow(top + bitmap.height - 1);
+          ty = ty + 1) {
+        for (int tx = this.tileCol(left); tx <= this.tileCol(left + bitmap.width - 1);
+            tx = tx + 1) {
+          if (this.dirty[ty * this.tilesX + tx]) {
+            bitmap.blit(this.pixels, this.width, f.coordinates.x, f.coordinates.y, tx * TILE,
+                ty * TILE, Math.min((tx + 1) * TILE, this.width),
+                Math.min((ty + 1) * TILE, this.height));
+          }
+        }
+      }
+    }
+  }
+
+  // returns the tile column holding frame column x, clamped to the frame
+  int tileCol(int x) {
+    return Math.max(0, Math.min(this.tilesX - 1, x / TILE));
+  }
+
+  // returns the tile row holding frame row y, clamped to the frame
+  int tileRow(int y) {
+    return Math.max(0, Math.min(this.tilesY - 1, y / TILE));
+  }
+
+  // clears the pixels of every tile being redrawn, counting them
+  void clearDirtyTiles() {
+    this.dirtyTiles = 0;
+    for (int t = 0; t < this.dirty.length; t = t + 1) {
+      this.dirty[t] = this.signature[t] != this.previous[t];
+      if (this.dirty[t]) {
+        this.dirtyTiles = this.dirtyTiles + 1;
+        int left = (t % this.tilesX) * TILE;
+        int right = Math.min(left + TILE, this.width);
+        for (int y = (t / this.tilesX) * TILE; y < Math.min((t / this.tilesX + 1) * TILE,
+            this.height); y = y + 1) {
+          java.util.Arrays.fill(this.pixels, y * this.width + left, y * this.width + right, 0);
+        }
+      }
+    }
+  }
+
+  // redraws the tiles where the enemies and then the player differ from the
+  // last frame, and returns the given empty scene with the frame placed on it
+  WorldScene render(Fish player, IList<Fish> enemies, WorldScene empty) {
+    java.util.Arrays.fill(this.signature, 0);
+    enemies.foldr(new SignAll(), this);
+    this.sign(player);
+    this.clearDirtyTiles();
+    enemies.foldr(new BlitAll(), this);
+    this.blit(player);
+    long[] last = this.previous;
+    this.previous = this.signature;
+    this.signature = last;
+    return empty.placeImageXY(this.frame, this.width / 2, this.height / 2);
+  }
+}
+
+// signs each fish into the tiles of a frame in the same order PlaceAll
+// places them
+class SignAll implements IFunc2<Fish, BitmapRenderer, BitmapRenderer> {
+  public BitmapRenderer apply(Fish f, BitmapRenderer renderer) {
+    renderer.sign(f);
+    return renderer;
+  }
+}
+
+// blits each fish onto a frame in the same order PlaceAll places them
+class BlitAll implements IFunc2<Fish, BitmapRenderer, BitmapRenderer> {
+  public BitmapRenderer apply(Fish f, BitmapRenderer renderer) {
+    renderer.blit(f);
+    return renderer;
+  }
+}
+
+// to draw a javalib scene onto an off-screen bitmap the way the canvas would,
+// so frames can be measured and compared without a window
+class OffscreenCanvas {
+  java.awt.image.BufferedImage image;
+  java.lang.reflect.Method draw;
+
+  OffscreenCanvas(int width, int height) {
+    this.image = new java.awt.image.BufferedImage(width, height,
+        java.awt.image.BufferedImage.TYPE_INT_ARGB);
+    try {
+      this.draw = javalib.worldcanvas.WorldSceneBase.class.getDeclaredMethod("draw",
+          java.awt.Graphics2D.class);
+      this.draw.setAccessible(true);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("This javalib cannot draw scenes off-screen", e);
+    }
+  }
+
+  // clears the bitmap to white and draws the given scene onto it
+  java.awt.image.BufferedImage draw(WorldScene scene) {
+    java.awt.Graphics2D g = this.image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, this.image.getWidth(), this.image.getHeight());
+    try {
+      this.draw.invoke(scene, g);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not draw scene", e);
+    }
+    g.dispose();
+    return this.image;
+  }
+}
+
+// to move a slice of an array of fish in place with MoveAll, replacing each
+// fish that has left the screen with null, splitting the slice across the
+// pool until it is small
+// every fish lands back in its own slot, so the result does not depend on how
+// the work was split
+class MoveAndCull extends java.util.concurrent.RecursiveAction {
+  static final long serialVersionUID = 1L;
+  static final int CHUNK = 2048;
+
+  Object[] fish;
+  int from;
+  int to;
+  // MoveAll, or MoveInPlace, which is safe here because each fish is moved
+  // by the one task that owns its slot
+  IFunc<Fish, Fish> move;
+  // RemoveOffScreen for the world the fish swim in
+  IPred<Fish> onScreen;
+
+  MoveAndCull(Object[] fish, int from, int to, IFunc<Fish, Fish> move, IPred<Fish> onScreen) {
+    this.fish = fish;
+    this.from = from;
+    this.to = to;
+    this.move = move;
+    this.onScreen = onScreen;
+  }
+
+  protected void compute() {
+    if (this.to - this.from <= CHUNK) {
+      for (int i = this.from; i < this.to; i = i + 1) {
+        Fish moved = this.move.apply((Fish) this.fish[i]);
+        if (this.onScreen.apply(moved)) {
+          this.fish[i] = moved;
+        }
+        else {
+          this.fish[i] = null;
+        }
+      }
+    }
+    else {
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new MoveAndCull(this.fish, this.from, middle, this.move, this.onScreen),
+          new MoveAndCull(this.fish, middle, this.to, this.move, this.onScreen));
+    }
+  }
+}
+
+// to represent the size of a world and the seconds between two of its ticks
+// enemies spawn just off its left and right edges and are kept between its
+// top and bottom, and the player wraps around its sides
+class WorldConfig {
+  // the 1000 by 1000 world, ticking ten times a second, the games were made
+  // for
+  static final WorldConfig STANDARD = new WorldConfig(1000, 1000, 0.1);
+
+  int width;
+  int height;
+  double tickRate;
+
+  WorldConfig(int width, int height, double tickRate) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("A world must have a positive width and height");
+    }
+    if (!(tickRate > 0)) {
+      throw new IllegalArgumentException("A world must have a positive tick rate");
+    }
+    this.width = width;
+    this.height = height;
+    this.tickRate = tickRate;
+  }
+
+  // returns the number of times a tick rolls for a new enemy: one for each
+  // 1000 of height, so that with enemies taking longer to cross a wider world
+  // there are as many enemies per area as in the standard world
+  int spawnRolls() {
+    return Math.max(1, this.height / 1000);
+  }
+
+  // returns the number of ticks in a second
+  double ticksPerSecond() {
+    return 1 / this.tickRate;
+  }
+
+  // returns the world given by the world and tickRate system properties, as
+  // in -Dworld=10000x10000 -DtickRate=0.05, each being the standard world's
+  // unless given
+  static WorldConfig fromProperty() {
+    String size = System.getProperty("world", STANDARD.width + "x" + STANDARD.height);
+    String[] sides = size.split("x");
+    if (sides.length != 2) {
+      throw new IllegalArgumentException("Give the world as WIDTHxHEIGHT, not " + size);
+    }
+    return new WorldConfig(Integer.parseInt(sides[0]), Integer.parseInt(sides[1]),
+        Double.parseDouble(System.getProperty("tickRate", "" + STANDARD.tickRate)));
+  }
+}
+
+// to represent a game of a player fish eating smaller fish, with the rules
+// FishGame and HookGame share; each kind of game only says how to make
+// another game of its own kind, so that with() and every stage built on it
+// keep the kind
+abstract class AGame extends World {
+
+  Fish player;
+  IList<Fish> enemies;
+  Random rand;
+  // draws the scene into one bitmap, or null to place each fish's image
+  BitmapRenderer renderer;
+  // moves and culls the enemies in parallel, or null to do it sequentially
+  java.util.concurrent.ForkJoinPool pool;
+  // told of every key, tick, spawn, eat and drawing of the session, or null
+  GameListener listener;
+  // whether onTick moves the enemies by changing their own Fish and APosn,
+  // and without a pool their list storage, instead of making new ones; a game
+  // that does must own its enemies, as withInPlace sees to, and must not be
+  // used again once it has ticked
+  boolean inPlace;
+  // the size of the world and the length of its ticks
+  WorldConfig world;
+
+  AGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace,
+      WorldConfig world) {
+    this.player = player;
+    this.enemies = enemies;
+    this.rand = rand;
+    this.renderer = renderer;
+    this.pool = pool;
+    this.listener = listener;
+    this.inPlace = inPlace;
+    this.world = world;
+  }
+
+  AGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace) {
+    this(player, enemies, rand, renderer, pool, listener, inPlace, WorldConfig.STANDARD);
+  }
+
+  AGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener) {
+    this(player, enemies, rand, renderer, pool, listener, false);
+  }
+
+  AGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool) {
+    this(player, enemies, rand, renderer, pool, null);
+  }
+
+  AGame(Fish player, IList<Fish> enemies, Random rand) {
+    this(player, enemies, rand, null, null);
+  }
+
+  AGame(Fish player, IList<Fish> enemies) {
+    this(player, enemies, new Random());
+  }
+
+  // the enemies start as the given empty list, and keep its representation
+  // (ConsList or ArrList) for the whole game
+  // a new game has no listener; withFlightEvents asks it for FishEvents
+  AGame(Random rand, IList<Fish> noEnemies) {
+    this(new Fish((new APosn(500, 500)), (new APosn(0, 0)), 1, 0, 0, "left", Color.BLACK),
+        noEnemies, rand, null, null, null);
+  }
+
+  AGame(Random rand) {
+    this(rand, new MtList<Fish>());
+  }
+
+  AGame() {
+    this(new GameRandom());
+  }
+
+  // returns a game of this kind with the given fields
+  abstract AGame make(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace,
+      WorldConfig world);
+
+  // returns a new game of this kind, list representation, world and
+  // settings, listener included, with the given Random, with the player in
+  // the middle of the world and no enemies
+  AGame restart(Random rand) {
+    return this.make(new Fish((new APosn(this.world.width / 2, this.world.height / 2)),
+        (new APosn(0, 0)), 1, 0, 0, "left", Color.BLACK),
+        this.enemies.<Fish>rebuild(new Object[0], 0), rand, this.renderer, this.pool,
+        this.listener, this.inPlace, this.world);
+  }
+
+  // returns a new game of the kind with the given name, fish or hook
+  static AGame named(String name) {
+    if (name.equals("fish")) {
+      return new FishGame();
+    }
+    else if (name.equals("hook")) {
+      return new HookGame();
+    }
+    else {
+      throw new IllegalArgumentException("Unknown game: " + name);
+    }
+  }
+
+  // returns a new game of the kind named by the game system property, which
+  // is fish unless the program is run with -Dgame=hook, in the world given by
+  // WorldConfig.fromProperty
+  // it emits FishEvents when run with -DflightEvents=true
+  static AGame fromProperty() {
+    AGame game = named(System.getProperty("game", "fish")).withWorld(WorldConfig.fromProperty())
+        .restart(new GameRandom());
+    if (Boolean.getBoolean("flightEvents")) {
+      return game.withFlightEvents();
+    }
+    else {
+      return game;
+    }
+  }
+
+  // returns a game with the given player and enemies and the rest of this
+  // game's settings
+  AGame with(Fish player, IList<Fish> enemies) {
+    return this.make(player, enemies, this.rand, this.renderer, this.pool, this.listener,
+        this.inPlace, this.world);
+  }
+
+  // returns a game like this one with the given player and enemies, to be
+  // drawn on another thread: it has no listener, so this game's listener is
+  // only ever told of events on the thread that ticks it
+  AGame toDraw(Fish player, IList<Fish> enemies) {
+    return this.make(player, enemies, this.rand, this.renderer, this.pool, null, false,
+        this.world);
+  }
+
+  // returns this game drawn by the given renderer
+  AGame withRenderer(BitmapRenderer renderer) {
+    return this.make(this.player, this.enemies, this.rand, renderer, this.pool, this.listener,
+        this.inPlace, this.world);
+  }
+
+  // returns this game with its enemies moved and culled on the given pool
+  AGame withPool(java.util.concurrent.ForkJoinPool pool) {
+    return this.make(this.player, this.enemies, this.rand, this.renderer, pool,
+        this.listener, this.inPlace, this.world);
+  }
+
+  // returns this game telling the given listener of its events, as well as
+  // any listener it already has
+  AGame withListener(GameListener listener) {
+    GameListener all = listener;
+    if (this.listener != null) {
+      all = new GameListeners(new GameListener[] { this.listener, listener });
+    }
+    return this.make(this.player, this.enemies, this.rand, this.renderer, this.pool, all,
+        this.inPlace, this.world);
+  }
+
+  // returns this game emitting FishEvents, which cost next to nothing until a
+  // flight recording enables them, as well as telling any listener it has
+  AGame withFlightEvents() {
+    return this.withListener(new FishEvents());
+  }
+
+  // returns this game moving its enemies in place or not; turning it on
+  // copies the enemies, their positions and their list, so that the game
+  // owns everything it changes and no other game or list sees the changes
+  AGame withInPlace(boolean inPlace) {
+    if (inPlace && !this.inPlace) {
+      return this.make(this.player, this.enemies.map(new CopyFish()), this.rand, this.renderer,
+          this.pool, this.listener, true, this.world);
+    }
+    else {
+      return this.make(this.player, this.enemies, this.rand, this.renderer, this.pool,
+          this.listener, inPlace, this.world);
+    }
+  }
+
+  // returns this game played in the given world, which keeps its player and
+  // enemies where they are
+  AGame withWorld(WorldConfig world) {
+    return this.make(this.player, this.enemies, this.rand, this.renderer, this.pool,
+        this.listener, this.inPlace, world);
+  }
+
+  // opens a window the size of this game's world, ticking at its tick rate
+  boolean play() {
+    return this.bigBang(this.world.width, this.world.height, this.world.tickRate);
+  }
+
+  // returns the given enemies moved and without those that have left the
+  // screen, in parallel if this game has a pool
+  IList<Fish> moveEnemies(IList<Fish> enemies) {
+    if (this.inPlace && this.pool == null) {
+      return enemies.updateInPlace(new MoveInPlace(this.world),
+          new RemoveOffScreen(this.world));
+    }
+    else if (this.pool == null) {
+      return enemies.map(new MoveAll(this.world)).filter(new RemoveOffScreen(this.world));
+    }
+    else {
+      Object[] fish = enemies.toArray();
+      if (this.inPlace) {
+        this.pool.invoke(new MoveAndCull(fish, 0, fish.length, new MoveInPlace(this.world),
+            new RemoveOffScreen(this.world)));
+      }
+      else {
+        this.pool.invoke(new MoveAndCull(fish, 0, fish.length, new MoveAll(this.world),
+            new RemoveOffScreen(this.world)));
+      }
+      int kept = 0;
+      for (int i = 0; i < fish.length; i = i + 1) {
+        if (fish[i] != null) {
+          fish[kept] = fish[i];
+          kept = kept + 1;
+        }
+      }
+      return enemies.rebuild(fish, kept);
+    }
+  }
+
+  public boolean canBeEaten() {
+    return this.enemies.ormapacc(new IsEatenBy(), this.player);
+  }
+
+  // checks the player against every enemy in a single pass; the games use no
+  // broad phase, since a tick already moves every enemy, and a FishGrid or
+  // SweepAndPrune only pays off in a FishSim
+  public CollisionResult resolveCollisions() {
+    CollisionResult result = this.enemies.foldl(new ResolveCollisions(this.player),
+        new CollisionResult());
+    if (result.prey != null && this.inPlace) {
+      result.survivors = this.enemies.updateInPlace(new Unchanged(), new NotEatenBy(this.player));
+    }
+    else if (result.prey != null) {
+      result.survivors = this.enemies.filteracc(new IsNotEatenBy(), this.player);
+    }
+    else {
+      result.survivors = this.enemies;
+    }
+    return result;
+  }
+
+  public Fish eatOrEaten() {
+    return this.resolveCollisions().playerAfter(this.player);
+  }
+
+  public IList<Fish> eatenOrEat() {
+    return this.enemiesAfter(this.resolveCollisions());
+  }
+
+  // returns the enemies after the given collisions and this tick's spawn
+  IList<Fish> enemiesAfter(CollisionResult collisions) {
+    return this.with(this.player, collisions.survivors).spawnEnemy();
+  }
+
+  // rolls for a new enemy as many times as the world's spawnRolls, adding
+  // one for each roll of 1 out of 10
+  public IList<Fish> spawnEnemy() {
+    IList<Fish> result = this.enemies;
+    for (int i = 0; i < this.world.spawnRolls(); i = i + 1) {
+      if (this.rand.nextInt(10) == 1) {
+        result = result.cons(this.newEnemy());
+      }
+    }
+    return result;
+  }
+
+  public IList<Fish> addEnemy() {
+    return this.enemies.cons(this.newEnemy());
+  }
+
+  // returns a random enemy just off the left or right of the world, swimming
+  // across it
+  Fish newEnemy() {
+    int randomFish = this.rand.nextInt(5) + 1;
+    Fish spawned;
+    if (this.rand.nextInt(2) == 1) {
+      spawned = new Fish(
+          (new APosn(this.world.width + (25 * randomFish), this.rand.nextInt(this.world.height))),
+          (new APosn(-60 / randomFish, 0)), randomFish, randomFish * 10, 0, "left",
+          Color.BLACK);
+    }
+    else {
+      spawned = new Fish((new APosn(0 - (25 * randomFish), this.rand.nextInt(this.world.height))),
+          (new APosn(60 / randomFish, 0)), randomFish, randomFish * 10, 0, "right",
+          Color.BLACK);
+    }
+    if (this.listener != null) {
+      this.listener.spawned(spawned);
+    }
+    return spawned;
+  }
+
+  public WorldScene makeScene() {
+    if (this.listener == null) {
+      return this.drawScene();
+    }
+    else {
+      this.listener.drawStarted(this);
+      WorldScene scene = this.drawScene();
+      this.listener.drawEnded(this);
+      return scene;
+    }
+  }
+
+  // returns the scene of the player over the enemies
+  WorldScene drawScene() {
+    if (this.renderer != null) {
+      return this.renderer.render(this.player, this.enemies, this.getEmptyScene());
+    }
+    else {
+      IFunc2<Fish, WorldScene, WorldScene> place = new PlaceVisible(this.world.width,
+          this.world.height);
+      return place.apply(this.player, this.enemies.foldr(place, this.getEmptyScene()));
+    }
+  }
+
+  // returns whether the player has won or been eaten
+  public boolean isOver() {
+    return this.player.level == 6 || this.player.color.equals(Color.RED);
+  }
+
+  public WorldEnd worldEnds() {
+    if (this.listener == null) {
+      return this.checkEnds();
+    }
+    else {
+      this.listener.endsStarted(this);
+      WorldEnd end = this.checkEnds();
+      this.listener.endsEnded(this, end);
+      return end;
+    }
+  }
+
+  // returns whether the world has ended, with the last scene
+  WorldEnd checkEnds() {
+    if (this.player.level == 6) {
+      return new WorldEnd(true,
+          this.with(
+              new Fish(this.player.coordinates, this.player.velocity, this.player.level,
+                  this.player.experience, this.player.score, this.player.facing, Color.GREEN),
+              this.enemies).makeScene());
+    }
+    else if (this.player.color.equals(Color.RED)) {
+      return new WorldEnd(true, this.makeScene());
+    }
+    else {
+      return new WorldEnd(false, this.makeScene());
+    }
+  }
+
+  public World onKeyEvent(String key) {
+    if (this.listener != null) {
+      this.listener.keyPressed(key, this.player);
+    }
+    if (key.equals("up")) {
+      return this.with(this.player.moves(0, -60, "up"), this.enemies);
+    }
+    else if (key.equals("down")) {
+      return this.with(this.player.moves(0, 60, "down"), this.enemies);
+    }
+    else if (key.equals("left")) {
+      return this.with(this.player.moves(-60, 0, "left"), this.enemies);
+    }
+    else if (key.equals("right")) {
+      return this.with(this.player.moves(60, 0, "right"), this.enemies);
+    }
+    else {
+      return this;
+    }
+  }
+
+  public World onTick() {
+    if (this.listener == null) {
+      CollisionResult collisions = this.resolveCollisions();
+      return this.with(collisions.playerAfter(this.player).movePlayer(this.world),
+          this.moveEnemies(this.enemiesAfter(collisions)));
+    }
+    else {
+      this.listener.tickStarted(this);
+      CollisionResult collisions = this.resolveCollisions();
+      if (collisions.prey != null) {
+        this.listener.ate(this.player, collisions.prey);
+      }
+      else if (collisions.collided) {
+        this.listener.eaten(this.player, collisions.hunter);
+      }
+      AGame next = this.with(collisions.playerAfter(this.player).movePlayer(this.world),
+          this.moveEnemies(this.enemiesAfter(collisions)));
+      this.listener.tickEnded(next);
+      return next;
+    }
+  }
+
+}
+
+// to represent a population of fish as primitive columns, so that moving,
+// culling and collision update every fish in place without allocating
+// fish are kept oldest first, so index size - 1 is the front of the matching
+// IList, where addEnemy puts the newest fish
+class FishStore {
+  static final String[] FACINGS = { "left", "right", "up", "down" };
+
+  int size;
+  int[] x;
+  int[] y;
+  int[] vx;
+  int[] vy;
+  int[] level;
+  int[] experience;
+  int[] score;
+  byte[] facing;
+  Color[] color;
+  // each fish's place in the order of the last SweepAndPrune built over the
+  // store, or -1 for a fish added since
+  int[] rank;
+  // which fish have been eaten by another fish, and the experience each fish
+  // has eaten, during eatEachOther
+  boolean[] eaten;
+  int[] gained;
+
+  FishStore(int capacity) {
+    this.size = 0;
+    this.x = new int[capacity];
+    this.y = new int[capacity];
+    this.vx = new int[capacity];
+    this.vy = new int[capacity];
+    this.level = new int[capacity];
+    this.experience = new int[capacity];
+    this.score = new int[capacity];
+    this.facing = new byte[capacity];
+    this.color = new Color[capacity];
+    this.rank = new int[capacity];
+  }
+
+  // copies the given list, so that fishAt(size - 1) is its first fish
+  FishStore(IList<Fish> fish) {
+    this(Math.max(16, fish.length()));
+    Object[] items = new Object[fish.length()];
+    int i = 0;
+    for (IList<Fish> cur = fish; !cur.isEmpty(); cur = cur.getRest()) {
+      items[i] = cur.getFirst();
+      i = i + 1;
+    }
+    for (i = items.length - 1; i >= 0; i = i - 1) {
+      this.add((Fish) items[i]);
+    }
+  }
+
+  // returns the byte stored for the given facing
+  static byte facingCode(String facing) {
+    for (byte i = 0; i < FACINGS.length; i = (byte) (i + 1)) {
+      if (FACINGS[i].equals(facing)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown facing: " + facing);
+  }
+
+  // adds the given fish as the newest in the store
+  void add(Fish f) {
+    this.add(f.coordinates.x, f.coordinates.y, f.velocity.x, f.velocity.y, f.level,
+        f.experience, f.score, facingCode(f.facing), f.color);
+  }
+
+  // adds a fish with the given fields as the newest in the store
+  void add(int x, int y, int vx, int vy, int level, int experience, int score, byte facing,
+      Color color) {
+    if (this.size == this.x.length) {
+      this.grow(this.size * 2 + 1);
+    }
+    int i = this.size;
+    this.x[i] = x;
+    this.y[i] = y;
+    this.vx[i] = vx;
+    this.vy[i] = vy;
+    this.level[i] = level;
+    this.experience[i] = experience;
+    this.score[i] = score;
+    this.facing[i] = facing;
+    this.color[i] = color;
+    this.rank[i] = -1;
+    this.size = i + 1;
+  }
+
+  // widens every column to the given capacity
+  void grow(int capacity) {
+    this.x = java.util.Arrays.copyOf(this.x, capacity);
+    this.y = java.util.Arrays.copyOf(this.y, capacity);
+    this.vx = java.util.Arrays.copyOf(this.vx, capacity);
+    this.vy = java.util.Arrays.copyOf(this.vy, capacity);
+    this.level = java.util.Arrays.copyOf(this.level, capacity);
+    this.experience = java.util.Arrays.copyOf(this.experience, capacity);
+    this.score = java.util.Arrays.copyOf(this.score, capacity);
+    this.facing = java.util.Arrays.copyOf(this.facing, capacity);
+    this.color = java.util.Arrays.copyOf(this.color, capacity);
+    this.rank = java.util.Arrays.copyOf(this.rank, capacity);
+  }
+
+  // makes this store hold the same fish as the given one, reusing its columns
+  // when they are large enough
+  void copyFrom(FishStore that) {
+    if (this.x.length < that.size) {
+      this.grow(that.size);
+    }
+    System.arraycopy(that.x, 0, this.x, 0, that.size);
+    System.arraycopy(that.y, 0, this.y, 0, that.size);
+    System.arraycopy(that.vx, 0, this.vx, 0, that.size);
+    System.arraycopy(that.vy, 0, this.vy, 0, that.size);
+    System.arraycopy(that.level, 0, this.level, 0, that.size);
+    System.arraycopy(that.experience, 0, this.experience, 0, that.size);
+    System.arraycopy(that.score, 0, this.score, 0, that.size);
+    System.arraycopy(that.facing, 0, this.facing, 0, that.size);
+    System.arraycopy(that.color, 0, this.color, 0, that.size);
+    System.arraycopy(that.rank, 0, this.rank, 0, that.size);
+    this.size = that.size;
+  }
+
+  // moves the fish at index from to index to
+  void moveSlot(int from, int to) {
+    this.x[to] = this.x[from];
+    this.y[to] = this.y[from];
+    this.vx[to] = this.vx[from];
+    this.vy[to] = this.vy[from];
+    this.level[to] = this.level[from];
+    this.experience[to] = this.experience[from];
+    this.score[to] = this.score[from];
+    this.facing[to] = this.facing[from];
+    this.color[to] = this.color[from];
+    this.rank[to] = this.rank[from];
+  }
+
+  // returns the fish at index i as a Fish
+  Fish fishAt(int i) {
+    return new Fish(new APosn(this.x[i], this.y[i]), new APosn(this.vx[i], this.vy[i]),
+        this.level[i], this.experience[i], this.score[i], FACINGS[this.facing[i]],
+        this.color[i]);
+  }
+
+  // returns the fish in this store as a list, newest first
+  IList<Fish> toList() {
+    IList<Fish> result = new MtList<Fish>();
+    for (int i = 0; i < this.size; i = i + 1) {
+      result = new ConsList<Fish>(this.fishAt(i), result);
+    }
+    return result;
+  }
+
+  // moves every fish by its velocity, keeping it inside the top and bottom
+  // of the given world, in the same way as Fish.move
+  void moveAll(WorldConfig world) {
+    for (int i = 0; i < this.size; i = i + 1) {
+      int nx = this.x[i] + this.vx[i];
+      int ny = this.y[i] + this.vy[i];
+      if (ny >= world.height - (this.level[i] * 15)) {
+        ny = world.height - (this.level[i] * 15);
+      }
+      else if (ny <= 0 + (this.level[i] * 15)) {
+        ny = 0 + (this.level[i] * 15);
+      }
+      this.x[i] = nx;
+      this.y[i] = ny;
+    }
+  }
+
+  // removes every fish that has swum off the left or right of the given
+  // world, in the same way as RemoveOffScreen
+  void removeOffscreen(WorldConfig world) {
+    int kept = 0;
+    for (int i = 0; i < this.size; i = i + 1) {
+      if (!(this.x[i] < (0 - (25 * this.level[i]))
+          || this.x[i] > (world.width + (25 * this.level[i])))) {
+        this.moveSlot(i, kept);
+        kept = kept + 1;
+      }
+    }
+    this.clearFrom(kept);
+  }
+
+  // forgets every fish from index kept onwards
+  void clearFrom(int kept) {
+    java.util.Arrays.fill(this.color, kept, this.size, null);
+    this.size = kept;
+  }
+
+  // returns whether the fish at index i collides with the given fish, in the
+  // same way as Fish.fishCollision
+  boolean collides(int i, Fish f) {
+    int l = this.level[i];
+    return ((this.x[i] - (25 * l)) <= (f.coordinates.x + (25 * f.level)))
+        && ((this.x[i] + (25 * l)) >= (f.coordinates.x - (25 * f.level)))
+        && ((this.y[i] - (15 * l)) <= (f.coordinates.y + (15 * f.level)))
+        && ((this.y[i] + (15 * l)) >= (f.coordinates.y - (15 * f.level)));
+  }
+
+  // returns the index of the newest fish the given fish collides with and can
+  // eat, or -1 if there is none
+  int firstPrey(Fish f) {
+    for (int i = this.size - 1; i >= 0; i = i - 1) {
+      if (this.collides(i, f) && f.level >= this.level[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // returns whether the given fish collides with any fish in the store
+  boolean anyCollision(Fish f) {
+    for (int i = 0; i < this.size; i = i + 1) {
+      if (this.collides(i, f)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // removes every fish that collides with the given fish
+  void removeColliding(Fish f) {
+    int kept = 0;
+    for (int i = 0; i < this.size; i = i + 1) {
+      if (!this.collides(i, f)) {
+        this.moveSlot(i, kept);
+        kept = kept + 1;
+      }
+    }
+    this.clearFrom(kept);
+  }
+
+  // returns whether the fish at indexes i and j collide, in the same way as
+  // Fish.fishCollision
+  boolean collides(int i, int j) {
+    return ((this.x[i] - (25 * this.level[i])) <= (this.x[j] + (25 * this.level[j])))
+        && ((this.x[i] + (25 * this.level[i])) >= (this.x[j] - (25 * this.level[j])))
+        && ((this.y[i] - (15 * this.level[i])) <= (this.y[j] + (15 * this.level[j])))
+        && ((this.y[i] + (15 * this.level[i])) >= (this.y[j] - (15 * this.level[j])));
+  }
+
+  // returns whether the fish at index i can eat the fish at index j: j is
+  // another fish that has not been eaten, collides with i and, as in
+  // Fish.canFishEat, is no bigger
+  boolean canEat(int i, int j) {
+    return j != i && !this.eaten[j] && this.level[i] >= this.level[j] && this.collides(i, j);
+  }
+
+  // returns the oldest fish the fish at index i can eat, or -1 if there is
+  // none, looking at every fish
+  int preyOf(int i) {
+    for (int j = 0; j < this.size; j = j + 1) {
+      if (this.canEat(i, j)) {
+        return j;
+      }
+    }
+    return -1;
+  }
+
+  // lets each fish, oldest first, eat the oldest fish it can eat, gaining its
+  // experience as in Fish.eatFish; a fish eaten earlier in the pass eats
+  // nothing, and every fish is judged by its place and level from before the
+  // pass; finds the prey with the given broad phase, which must have been
+  // built over this store as it is, or by trying every pair of fish if it is
+  // null; returns the number of fish eaten
+  int eatEachOther(IBroadPhase broadPhase) {
+    if (this.eaten == null || this.eaten.length < this.size) {
+      this.eaten = new boolean[this.x.length];
+      this.gained = new int[this.x.length];
+    }
+    else {
+      java.util.Arrays.fill(this.eaten, 0, this.size, false);
+    }
+    int count = 0;
+    for (int i = 0; i < this.size; i = i + 1) {
+      this.gained[i] = 0;
+      if (!this.eaten[i]) {
+        int prey = broadPhase == null ? this.preyOf(i) : broadPhase.preyOf(this, i);
+        if (prey >= 0) {
+          this.eaten[prey] = true;
+          this.gained[i] = this.experience[prey];
+          count = count + 1;
+        }
+      }
+    }
+    if (count == 0) {
+      return 0;
+    }
+    int kept = 0;
+    for (int i = 0; i < this.size; i = i + 1) {
+      if (!this.eaten[i]) {
+        if (this.gained[i] > 0) {
+          this.eatExperience(i, this.gained[i]);
+        }
+        this.moveSlot(i, kept);
+        kept = kept + 1;
+      }
+    }
+    this.clearFrom(kept);
+    return count;
+  }
+
+  // gives the fish at index i the given experience in the same way as
+  // Fish.eatExperience
+  void eatExperience(int i, int experience) {
+    if (this.experience[i] + experience >= this.level[i] * 100) {
+      this.experience[i] = (this.experience[i] + experience) - (this.level[i] * 100);
+      this.level[i] = this.level[i] + 1;
+    }
+    else {
+      this.experience[i] = this.experience[i] + experience;
+    }
+    this.score[i] = this.score[i] + experience;
+  }
+
+  // adds a new enemy at the left or right of the given world, drawing from
+  // rand in the same order as AGame.newEnemy
+  void spawn(Random rand, WorldConfig world) {
+    int randomFish = rand.nextInt(5) + 1;
+    if (rand.nextInt(2) == 1) {
+      this.add(world.width + (25 * randomFish), rand.nextInt(world.height), -60 / randomFish,
+          0, randomFish, randomFish * 10, 0, (byte) 0, Color.BLACK);
+    }
+    else {
+      this.add(0 - (25 * randomFish), rand.nextInt(world.height), 60 / randomFish, 0,
+          randomFish, randomFish * 10, 0, (byte) 1, Color.BLACK);
+    }
+  }
+}
+
+// Interface for indexes over the fish of a FishStore that answer collision
+// queries without looking at every fish
+interface IBroadPhase {
+  // indexes the fish of the given store as they are now
+  void build(FishStore s);
+
+  // returns the index of the newest fish in s that the given fish collides
+  // with and can eat, or -1, matching FishStore.firstPrey
+  int firstPrey(FishStore s, Fish f);
+
+  // returns whether the given fish collides with any fish in s, matching
+  // FishStore.anyCollision
+  boolean anyCollision(FishStore s, Fish f);
+
+  // returns the oldest fish the fish at index i of s can eat, or -1,
+  // matching FishStore.preyOf
+  int preyOf(FishStore s, int i);
+}
+
+// to index the fish of a FishStore by a uniform grid over the world, so a
+// collision query only looks at fish in the cells near the querying fish
+// each fish is filed under the cell holding its centre, and a query widens
+// its box by the half-extents (25 * level by 15 * level) of the largest fish
+class FishGrid implements IBroadPhase {
+  int minX;
+  int minY;
+  int cellWidth;
+  int cellHeight;
+  int cols;
+  int rows;
+  int maxLevel;
+  // the newest fish in each cell, or -1 for an empty cell
+  int[] head;
+  // the next older fish in the same cell, or -1
+  int[] next;
+
+  FishGrid(int minX, int minY, int width, int height, int cellWidth, int cellHeight) {
+    this.minX = minX;
+    this.minY = minY;
+    this.cellWidth = cellWidth;
+    this.cellHeight = cellHeight;
+    this.cols = (width + cellWidth - 1) / cellWidth;
+    this.rows = (height + cellHeight - 1) / cellHeight;
+    this.head = new int[this.cols * this.rows];
+    this.next = new int[16];
+  }
+
+  // covers the given world plus the margin fish spawn in, with cells the size
+  // of a level 6 fish
+  FishGrid(WorldConfig world) {
+    this(-150, 0, world.width + 300, world.height, 150, 90);
+  }
+
+  FishGrid() {
+    this(WorldConfig.STANDARD);
+  }
+
+  // returns the column holding x, clamping to the edge columns
+  int col(int x) {
+    return Math.max(0, Math.min(this.cols - 1, Math.floorDiv(x - this.minX, this.cellWidth)));
+  }
+
+  // returns the row holding y, clamping to the edge rows
+  int row(int y) {
+    return Math.max(0, Math.min(this.rows - 1, Math.floorDiv(y - this.minY, this.cellHeight)));
+  }
+
+  // files every fish of the given store under its cell
+  public void build(FishStore s) {
+    java.util.Arrays.fill(this.head, -1);
+    if (this.next.length < s.size) {
+      this.next = new int[Math.max(s.size, this.next.length * 2)];
+    }
+    this.maxLevel = 0;
+    for (int i = 0; i < s.size; i = i + 1) {
+      int cell = this.row(s.y[i]) * this.cols + this.col(s.x[i]);
+      this.next[i] = this.head[cell];
+      this.head[cell] = i;
+      this.maxLevel = Math.max(this.maxLevel, s.level[i]);
+    }
+  }
+
+  // returns the index of the newest fish in s that the given fish collides
+  // with and can eat, or -1, matching FishStore.firstPrey
+  public int firstPrey(FishStore s, Fish f) {
+    int reachX = 25 * (f.level + this.maxLevel);
+    int reachY = 15 * (f.level + this.maxLevel);
+    int best = -1;
+    for (int r = this.row(f.coordinates.y - reachY); r <= this.row(f.coordinates.y + reachY);
+        r = r + 1) {
+      for (int c = this.col(f.coordinates.x - reachX); c <= this.col(f.coordinates.x + reachX);
+          c = c + 1) {
+        for (int i = this.head[r * this.cols + c]; i > best; i = this.next[i]) {
+          if (s.collides(i, f) && f.level >= s.level[i]) {
+            best = i;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  // returns whether the given fish collides with any fish in s, matching
+  // FishStore.anyCollision
+  public boolean anyCollision(FishStore s, Fish f) {
+    int reachX = 25 * (f.level + this.maxLevel);
+    int reachY = 15 * (f.level + this.maxLevel);
+    for (int r = this.row(f.coordinates.y - reachY); r <= this.row(f.coordinates.y + reachY);
+        r = r + 1) {
+      for (int c = this.col(f.coordinates.x - reachX); c <= this.col(f.coordinates.x + reachX);
+          c = c + 1) {
+        for (int i = this.head[r * this.cols + c]; i >= 0; i = this.next[i]) {
+          if (s.collides(i, f)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // returns the oldest fish the fish at index i of s can eat, or -1, matching
+  // FishStore.preyOf
+  public int preyOf(FishStore s, int i) {
+    int reachX = 25 * (s.level[i] + this.maxLevel);
+    int reachY = 15 * (s.level[i] + this.maxLevel);
+    int best = -1;
+    for (int r = this.row(s.y[i] - reachY); r <= this.row(s.y[i] + reachY); r = r + 1) {
+      for (int c = this.col(s.x[i] - reachX); c <= this.col(s.x[i] + reachX); c = c + 1) {
+        for (int j = this.head[r * this.cols + c]; j >= 0; j = this.next[j]) {
+          if ((best < 0 || j < best) && s.canEat(i, j)) {
+            best = j;
+          }
+        }
+      }
+    }
+    return best;
+  }
+}
+
+// to index the fish of a FishStore by the left edges of their x intervals,
+// the 25 * level half-width of Fish.fishCollision, so a collision query only
+// looks at the window of fish whose intervals can reach the querying fish's
+// enemies only move along x, by at most 60 a tick, so the order of one tick
+// is nearly the order of the next: each build starts from the last order,
+// which the store remembers in its rank column, and fixes it with an
+// insertion pass that costs one step per fish plus one per pair of fish
+// that swapped places; when the fish are so crowded that this would cost
+// more than sorting, the build sorts from scratch instead
+class SweepAndPrune implements IBroadPhase {
+  // a build with more new fish than this sorts every fish from scratch
+  static final int MAX_INSERTS = 64;
+
+  // the indexes of the fish of the store, by the left edges of their
+  // intervals, with the edges of each fish's box kept alongside so a scan
+  // reads them in order
+  int[] order;
+  int[] left;
+  int[] right;
+  int[] top;
+  int[] bottom;
+  int count;
+  // the place in the order of the fish with each rank, and each fish's left
+  // edge and index packed into one number for sortAll, reused by build
+  int[] byRank;
+  long[] packed;
+  int maxLevel;
+  // the number of places fish were moved by the last insertion pass, which
+  // stays small while the order is nearly sorted
+  long shifts;
+  // whether the last build sorted from scratch
+  boolean sortedAll;
+
+  SweepAndPrune() {
+    this.grow(16);
+  }
+
+  // makes room for the given number of fish, forgetting the order
+  void grow(int capacity) {
+    this.order = new int[capacity];
+    this.left = new int[capacity];
+    this.right = new int[capacity];
+    this.top = new int[capacity];
+    this.bottom = new int[capacity];
+    this.byRank = new int[capacity];
+    this.packed = new long[capacity];
+    this.count = 0;
+  }
+
+  // puts the fish of the given store in order: those of the last build in
+  // their last order, then the new ones, and then sorts them by left edge
+  public void build(FishStore s) {
+    if (this.order.length < s.size) {
+      this.grow(Math.max(s.size, this.order.length * 2));
+    }
+    java.util.Arrays.fill(this.byRank, 0, this.count, -1);
+    int fresh = 0;
+    for (int i = 0; i < s.size; i = i + 1) {
+      if (s.rank[i] >= 0 && s.rank[i] < this.count && this.byRank[s.rank[i]] < 0) {
+        this.byRank[s.rank[i]] = i;
+      }
+      else {
+        s.rank[i] = -1;
+        fresh = fresh + 1;
+      }
+    }
+    int n = 0;
+    for (int r = 0; r < this.count; r = r + 1) {
+      if (this.byRank[r] >= 0) {
+        this.order[n] = this.byRank[r];
+        n = n + 1;
+      }
+    }
+    for (int i = 0; i < s.size; i = i + 1) {
+      if (s.rank[i] < 0) {
+        this.order[n] = i;
+        n = n + 1;
+      }
+    }
+    this.count = n;
+    this.maxLevel = 0;
+    for (int k = 0; k < n; k = k + 1) {
+      int i = this.order[k];
+      this.left[k] = s.x[i] - (25 * s.level[i]);
+      this.maxLevel = Math.max(this.maxLevel, s.level[i]);
+    }
+    this.sortedAll = fresh > MAX_INSERTS || !this.insertionPass();
+    if (this.sortedAll) {
+      this.sortAll();
+    }
+    for (int k = 0; k < n; k = k + 1) {
+      int i = this.order[k];
+      s.rank[i] = k;
+      this.right[k] = s.x[i] + (25 * s.level[i]);
+      this.top[k] = s.y[i] - (15 * s.level[i]);
+      this.bottom[k] = s.y[i] + (15 * s.level[i]);
+    }
+  }
+
+  // returns whether the box of the fish at place k in the order overlaps the
+  // box with the given edges, in the same way as Fish.fishCollision
+  boolean overlaps(int k, int left, int right, int top, int bottom) {
+    return this.left[k] <= right && this.right[k] >= left && this.top[k] <= bottom
+        && this.bottom[k] >= top;
+  }
+
+  // sorts the order by left edge, moving each fish back past those ahead of
+  // it, which is fast when only a few are out of place; gives up, returning
+  // false, once it has moved fish more places than there are fish times the
+  // bits in their count, the cost of sorting them from scratch
+  boolean insertionPass() {
+    long limit = (long) this.count * (32 - Integer.numberOfLeadingZeros(this.count));
+    this.shifts = 0;
+    for (int k = 1; k < this.count; k = k + 1) {
+      if (this.shifts > limit) {
+        return false;
+      }
+      int key = this.left[k];
+      int fish = this.order[k];
+      int j = k - 1;
+      while (j >= 0 && this.left[j] > key) {
+        this.left[j + 1] = this.left[j];
+        this.order[j + 1] = this.order[j];
+        j = j - 1;
+      }
+      this.left[j + 1] = key;
+      this.order[j + 1] = fish;
+      this.shifts = this.shifts + (k - 1 - j);
+    }
+    return true;
+  }
+
+  // sorts the order by left edge from scratch
+  void sortAll() {
+    for (int k = 0; k < this.count; k = k + 1) {
+      this.packed[k] = ((long) this.left[k] << 32) | this.order[k];
+    }
+    java.util.Arrays.sort(this.packed, 0, this.count);
+    for (int k = 0; k < this.count; k = k + 1) {
+      this.left[k] = (int) (this.packed[k] >> 32);
+      this.order[k] = (int) this.packed[k];
+    }
+  }
+
+  // returns the place in the order just after the last fish whose left edge
+  // is at most x
+  int after(int x) {
+    int lo = 0;
+    int hi = this.count;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.left[mid] <= x) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // returns the index of the newest fish in s that the given fish collides
+  // with and can eat, or -1, matching FishStore.firstPrey
+  public int firstPrey(FishStore s, Fish f) {
+    int left = f.coordinates.x - (25 * f.level);
+    int right = f.coordinates.x + (25 * f.level);
+    int top = f.coordinates.y - (15 * f.level);
+    int bottom = f.coordinates.y + (15 * f.level);
+    int best = -1;
+    for (int k = this.after(right) - 1; k >= 0 && this.left[k] >= left - (50 * this.maxLevel);
+        k = k - 1) {
+      int i = this.order[k];
+      if (i > best && this.overlaps(k, left, right, top, bottom) && f.level >= s.level[i]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  // returns whether the given fish collides with any fish in s, matching
+  // FishStore.anyCollision
+  public boolean anyCollision(FishStore s, Fish f) {
+    int left = f.coordinates.x - (25 * f.level);
+    int right = f.coordinates.x + (25 * f.level);
+    int top = f.coordinates.y - (15 * f.level);
+    int bottom = f.coordinates.y + (15 * f.level);
+    for (int k = this.after(right) - 1; k >= 0 && this.left[k] >= left - (50 * this.maxLevel);
+        k = k - 1) {
+      if (this.overlaps(k, left, right, top, bottom)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns the oldest fish the fish at index i of s can eat, or -1, matching
+  // FishStore.preyOf
+  public int preyOf(FishStore s, int i) {
+    int left = s.x[i] - (25 * s.level[i]);
+    int right = s.x[i] + (25 * s.level[i]);
+    int top = s.y[i] - (15 * s.level[i]);
+    int bottom = s.y[i] + (15 * s.level[i]);
+    int best = -1;
+    for (int k = this.after(right) - 1; k >= 0 && this.left[k] >= left - (50 * this.maxLevel);
+        k = k - 1) {
+      int j = this.order[k];
+      if ((best < 0 || j < best) && this.overlaps(k, left, right, top, bottom)
+          && s.canEat(i, j)) {
+        best = j;
+      }
+    }
+    return best;
+  }
+}
+
+// to represent a fishy game whose enemies live in a FishStore and are updated
+// in place, giving the same results as AGame for the same Random
+class FishSim {
+  Fish player;
+  FishStore enemies;
+  Random rand;
+  // indexes the enemies for collision queries, or null to scan them all
+  IBroadPhase broadPhase;
+  // decides when and which enemies spawn, or null to roll for one enemy
+  // each tick as AGame does
+  SpawnScheduler spawner;
+  // the number of ticks simulated
+  int tick;
+  WorldConfig world;
+  // whether the enemies also eat each other, after they have moved each tick
+  boolean ecosystem;
+
+  FishSim(Fish player, FishStore enemies, Random rand, IBroadPhase broadPhase,
+      SpawnScheduler spawner, WorldConfig world) {
+    this.player = player;
+    this.enemies = enemies;
+    this.rand = rand;
+    this.broadPhase = broadPhase;
+    this.spawner = spawner;
+    this.world = world;
+  }
+
+  FishSim(Fish player, FishStore enemies, Random rand, IBroadPhase broadPhase,
+      SpawnScheduler spawner) {
+    this(player, enemies, rand, broadPhase, spawner, WorldConfig.STANDARD);
+  }
+
+  FishSim(Fish player, FishStore enemies, Random rand, IBroadPhase broadPhase) {
+    this(player, enemies, rand, broadPhase, null);
+  }
+
+  FishSim(Fish player, FishStore enemies, Random rand) {
+    this(player, enemies, rand, null);
+  }
+
+  // copies the state and world of the given game, sharing its Random
+  FishSim(AGame game) {
+    this(game.player, new FishStore(game.enemies), game.rand, null, null, game.world);
+  }
+
+  // returns whether the player has won or been eaten
+  boolean isOver() {
+    return this.player.level == 6 || this.player.color.equals(Color.RED);
+  }
+
+  // steers the player in the same way as AGame.onKeyEvent
+  void onKeyEvent(String key) {
+    if (key.equals("up")) {
+      this.player = this.player.moves(0, -60, "up");
+    }
+    else if (key.equals("down")) {
+      this.player = this.player.moves(0, 60, "down");
+    }
+    else if (key.equals("left")) {
+      this.player = this.player.moves(-60, 0, "left");
+    }
+    else if (key.equals("right")) {
+      this.player = this.player.moves(60, 0, "right");
+    }
+  }
+
+  // advances the game by one tick in the same way as AGame.onTick
+  void onTick() {
+    Fish next;
+    int prey;
+    if (this.broadPhase != null) {
+      this.broadPhase.build(this.enemies);
+      prey = this.broadPhase.firstPrey(this.enemies, this.player);
+    }
+    else {
+      prey = this.enemies.firstPrey(this.player);
+    }
+    if (prey >= 0) {
+      next = this.player.eatExperience(this.enemies.experience[prey]);
+      this.enemies.removeColliding(this.player);
+    }
+    else if (this.broadPhase != null ? this.broadPhase.anyCollision(this.enemies, this.player)
+        : this.enemies.anyCollision(this.player)) {
+      next = new Fish(this.player.coordinates, this.player.velocity, this.player.level,
+          this.player.experience, this.player.score, this.player.facing, Color.RED);
+    }
+    else {
+      next = this.player;
+    }
+    if (this.spawner != null) {
+      this.spawner.spawnInto(this.enemies, this.tick);
+    }
+    else {
+      for (int i = 0; i < this.world.spawnRolls(); i = i + 1) {
+        if (this.rand.nextInt(10) == 1) {
+          this.enemies.spawn(this.rand, this.world);
+        }
+      }
+    }
+    this.enemies.moveAll(this.world);
+    this.enemies.removeOffscreen(this.world);
+    if (this.ecosystem) {
+      if (this.broadPhase != null) {
+        this.broadPhase.build(this.enemies);
+      }
+      this.enemies.eatEachOther(this.broadPhase);
+    }
+    this.player = next.movePlayer(this.world);
+    this.tick = this.tick + 1;
+  }
+
+  // returns this simulation as an immutable game of the given game's kind
+  AGame toGame(AGame kind) {
+    return kind.make(this.player, this.enemies.toList(), this.rand, null, null, null, false,
+        this.world);
+  }
+}
+
+// to represent a number of spawns per tick that never changes
+class ConstantRate implements IFunc<Integer, Double> {
+  double rate;
+
+  ConstantRate(double rate) {
+    this.rate = rate;
+  }
+
+  public Double apply(Integer tick) {
+    return this.rate;
+  }
+}
+
+// to represent a number of spawns per tick that changes linearly from one
+// rate to another over the given number of ticks, then stays
+class RampRate implements IFunc<Integer, Double> {
+  double from;
+  double to;
+  int ticks;
+
+  RampRate(double from, double to, int ticks) {
+    this.from = from;
+    this.to = to;
+    this.ticks = ticks;
+  }
+
+  public Double apply(Integer tick) {
+    if (tick >= this.ticks) {
+      return this.to;
+    }
+    else {
+      return this.from + (this.to - this.from) * tick / this.ticks;
+    }
+  }
+}
+
+// to decide the spawns of a FishSim ahead of time: the spawns of BATCH ticks
+// are drawn at once from a rate curve (the expected spawns at each tick) and a
+// weighting of levels 1 to 5, then written straight into the store, dropping
+// any that would take it over the maximum population
+class SpawnScheduler {
+  static final int BATCH = 256;
+
+  IFunc<Integer, Double> rate;
+  int maxPopulation;
+  // the chance of each level being at most 1 to 5
+  double[] cumulative;
+  Random rand;
+  // the planned spawns of ticks batchStart up to batchStart + BATCH: those of
+  // tick batchStart + i are at indexes first[i] up to first[i + 1]
+  int batchStart;
+  int[] first;
+  int count;
+  int[] level;
+  boolean[] fromRight;
+  int[] y;
+  // the world the enemies spawn at the edges of
+  WorldConfig world;
+
+  SpawnScheduler(IFunc<Integer, Double> rate, int maxPopulation, double[] levelWeights,
+      Random rand, WorldConfig world) {
+    if (levelWeights.length != 5) {
+      throw new IllegalArgumentException("Give one level weight for each of levels 1 to 5");
+    }
+    double total = 0;
+    for (double w : levelWeights) {
+      if (w < 0) {
+        throw new IllegalArgumentException("Level weights cannot be negative");
+      }
+      total = total + w;
+    }
+    if (total == 0) {
+      throw new IllegalArgumentException("At least one level must have a weight");
+    }
+    this.rate = rate;
+    this.maxPopulation = maxPopulation;
+    this.cumulative = new double[5];
+    double sum = 0;
+    for (int i = 0; i < 5; i = i + 1) {
+      sum = sum + levelWeights[i];
+      this.cumulative[i] = sum / total;
+    }
+    this.rand = rand;
+    this.batchStart = -BATCH;
+    this.first = new int[BATCH + 1];
+    this.level = new int[BATCH];
+    this.fromRight = new boolean[BATCH];
+    this.y = new int[BATCH];
+    this.world = world;
+  }
+
+  SpawnScheduler(IFunc<Integer, Double> rate, int maxPopulation, double[] levelWeights,
+      Random rand) {
+    this(rate, maxPopulation, levelWeights, rand, WorldConfig.STANDARD);
+  }
+
+  // every level is equally likely
+  SpawnScheduler(IFunc<Integer, Double> rate, int maxPopulation, Random rand) {
+    this(rate, maxPopulation, new double[] { 1, 1, 1, 1, 1 }, rand);
+  }
+
+  // draws the spawns of the BATCH ticks from the given one; a tick whose rate
+  // is r spawns the whole part of r, plus one more with a chance of the rest
+  void plan(int start) {
+    this.batchStart = start;
+    this.count = 0;
+    for (int i = 0; i < BATCH; i = i + 1) {
+      this.first[i] = this.count;
+      double expected = Math.max(this.rate.apply(start + i), 0);
+      int n = (int) expected;
+      if (this.rand.nextDouble() < expected - n) {
+        n = n + 1;
+      }
+      for (int j = 0; j < n; j = j + 1) {
+        this.planOne();
+      }
+    }
+    this.first[BATCH] = this.count;
+  }
+
+  // draws one spawn onto the end of the plan
+  void planOne() {
+    if (this.count == this.level.length) {
+      this.level = java.util.Arrays.copyOf(this.level, this.count * 2);
+      this.fromRight = java.util.Arrays.copyOf(this.fromRight, this.count * 2);
+      this.y = java.util.Arrays.copyOf(this.y, this.count * 2);
+    }
+    double roll = this.rand.nextDouble();
+    int lvl = 1;
+    while (lvl < 5 && roll >= this.cumulative[lvl - 1]) {
+      lvl = lvl + 1;
+    }
+    this.level[this.count] = lvl;
+    this.fromRight[this.count] = this.rand.nextBoolean();
+    this.y[this.count] = this.rand.nextInt(this.world.height);
+    this.count = this.count + 1;
+  }
+
+  // adds the enemies planned for the given tick to the store, in the same
+  // places and at the same speeds as AGame.addEnemy, up to the maximum
+  // population; returns the number added
+  int spawnInto(FishStore store, int tick) {
+    if (tick < this.batchStart || tick >= this.batchStart + BATCH) {
+      this.plan(tick);
+    }
+    int from = this.first[tick - this.batchStart];
+    int n = Math.min(this.first[tick - this.batchStart + 1] - from,
+        this.maxPopulation - store.size);
+    if (n <= 0) {
+      return 0;
+    }
+    if (store.size + n > store.x.length) {
+      store.grow(Math.max(store.size + n, store.size * 2 + 1));
+    }
+    for (int i = from; i < from + n; i = i + 1) {
+      int lvl = this.level[i];
+      if (this.fromRight[i]) {
+        store.add(this.world.width + (25 * lvl), this.y[i], -60 / lvl, 0, lvl, lvl * 10, 0,
+            (byte) 0, Color.BLACK);
+      }
+      else {
+        store.add(0 - (25 * lvl), this.y[i], 60 / lvl, 0, lvl, lvl * 10, 0, (byte) 1,
+            Color.BLACK);
+      }
+    }
+    return n;
+  }
+
+  // usage: SpawnScheduler population [ticks [seed]]
+  // fills the world given by WorldConfig.fromProperty to the given population
+  // as fast as enemies can spawn and keeps it there, reporting the population
+  // and ticks per second
+  public static void main(String[] args) {
+    int population = Integer.parseInt(args[0]);
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+    WorldConfig world = WorldConfig.fromProperty();
+    FishSim sim = new FishSim(new Fish(new APosn(world.width / 2, -1000), new APosn(0, 0), 1,
+        0, 0, "left", Color.BLACK), new FishStore(population), new GameRandom(seed),
+        new FishGrid(world), new SpawnScheduler(new ConstantRate(population), population,
+            new double[] { 1, 1, 1, 1, 1 }, new GameRandom(seed), world),
+        world);
+    long start = System.nanoTime();
+    for (int i = 0; i < ticks; i = i + 1) {
+      sim.onTick();
+    }
+    long nanos = System.nanoTime() - start;
+    System.out.println("population=" + sim.enemies.size + " ticks=" + ticks + " ticks/s="
+        + (long) (ticks / (nanos / 1e9)));
+  }
+}
+
+// to represent the state of a game published by a SimulationLoop after a
+// tick, with the state before it, so that a frame can be drawn between them
+class GameSnapshot {
+  // the game before the tick, or the game itself before the first tick
+  AGame previous;
+  AGame game;
+  int tick;
+  // the System.nanoTime at which the tick was published
+  long publishedAt;
+
+  GameSnapshot(AGame previous, AGame game, int tick, long publishedAt) {
+    this.previous = previous;
+    this.game = game;
+    this.tick = tick;
+    this.publishedAt = publishedAt;
+  }
+
+  // returns the game drawn the given fraction of the way from the previous
+  // state to this one, without a listener, since it is drawn on another
+  // thread than the one that ticks the game
+  AGame between(double alpha) {
+    Interpolate lerp = new Interpolate(alpha, this.previous.world);
+    return this.previous.toDraw(lerp.between(this.previous.player, this.game.player),
+        this.previous.enemies.map(lerp));
+  }
+}
+
+// to run a game's simulation on its own thread at a fixed number of ticks per
+// second, publishing each new state as a snapshot
+// AGame and Fish are never changed once made, so a snapshot can be read by
+// any thread without locking while the simulation moves on; the loop turns
+// off in-place moves so that this holds
+class SimulationLoop implements Runnable {
+  // the most ticks run back to back to catch up after a late wakeup; a loop
+  // further behind drops the rest rather than never catching up
+  static final int MAX_CATCH_UP = 5;
+
+  double ticksPerSecond;
+  java.util.concurrent.atomic.AtomicReference<GameSnapshot> latest;
+  java.util.concurrent.ConcurrentLinkedQueue<String> keys;
+  volatile boolean running;
+  Thread thread;
+
+  SimulationLoop(AGame game, double ticksPerSecond) {
+    AGame start = game.withInPlace(false);
+    this.ticksPerSecond = ticksPerSecond;
+    this.latest = new java.util.concurrent.atomic.AtomicReference<GameSnapshot>(
+        new GameSnapshot(start, start, 0, System.nanoTime()));
+    this.keys = new java.util.concurrent.ConcurrentLinkedQueue<String>();
+  }
+
+  // ticks at the tick rate of the game's world
+  SimulationLoop(AGame game) {
+    this(game, game.world.ticksPerSecond());
+  }
+
+  // returns the nanoseconds between two ticks
+  long period() {
+    return Math.round(1e9 / this.ticksPerSecond);
+  }
+
+  // returns the time the next tick is due, given that it was due at next and
+  // it is now later than that; a loop more than MAX_CATCH_UP ticks behind
+  // drops the ticks it cannot make up
+  long catchUp(long next, long now) {
+    if (now - next >= MAX_CATCH_UP * this.period()) {
+      return now - (MAX_CATCH_UP - 1) * this.period();
+    }
+    else {
+      return next;
+    }
+  }
+
+  // queues a key to be handled before the next tick
+  void press(String key) {
+    this.keys.add(key);
+  }
+
+  // starts the simulation thread
+  void start() {
+    this.running = true;
+    this.thread = new Thread(this, "fish-simulation");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  // stops the simulation thread and waits for it to finish
+  void stop() {
+    this.running = false;
+    if (this.thread != null) {
+      this.thread.interrupt();
+      try {
+        this.thread.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  // ticks at the fixed rate until stopped or the game is over; a late tick is
+  // caught up rather than stretching the timestep, up to MAX_CATCH_UP ticks
+  public void run() {
+    GameSnapshot current = this.latest.get();
+    AGame game = current.game;
+    int tick = current.tick;
+    long next = System.nanoTime() + this.period();
+    while (this.running && !game.isOver()) {
+      long now = System.nanoTime();
+      long wait = next - now;
+      if (wait > 0) {
+        java.util.concurrent.locks.LockSupport.parkNanos(wait);
+        continue;
+      }
+      next = this.catchUp(next, now);
+      AGame previous = game;
+      for (String key = this.keys.poll(); key != null; key = this.keys.poll()) {
+        game = (AGame) game.onKeyEvent(key);
+      }
+      game = (AGame) game.onTick();
+      tick = tick + 1;
+      this.latest.set(new GameSnapshot(previous, game, tick, System.nanoTime()));
+      next = next + this.period();
+    }
+  }
+}
+
+// moves each enemy the given fraction of the way from where it is to where
+// the next tick moves it, to draw it between two simulation ticks
+class Interpolate implements IFunc<Fish, Fish> {
+  double alpha;
+  WorldConfig world;
+
+  Interpolate(double alpha, WorldConfig world) {
+    this.alpha = alpha;
+    this.world = world;
+  }
+
+  public Fish apply(Fish f) {
+    return this.between(f, f.move(this.world));
+  }
+
+  // returns the first fish moved the fraction of the way to where the second
+  // fish is, or already there if it got there by more than its velocity, as
+  // the player does when it wraps around the screen
+  Fish between(Fish from, Fish to) {
+    int dx = to.coordinates.x - from.coordinates.x;
+    int dy = to.coordinates.y - from.coordinates.y;
+    if (Math.abs(dx) > Math.abs(to.velocity.x) || Math.abs(dy) > Math.abs(to.velocity.y)) {
+      return new Fish(to.coordinates, to.velocity, from.level, from.experience, from.score,
+          from.facing, from.color);
+    }
+    else {
+      return new Fish(
+          new APosn(from.coordinates.x + (int) Math.round(this.alpha * dx),
+              from.coordinates.y + (int) Math.round(this.alpha * dy)),
+          to.velocity, from.level, from.experience, from.score, from.facing, from.color);
+    }
+  }
+}
+
+// to represent a world that only draws: bigBang's timer renders the latest
+// snapshot of a SimulationLoop, so the render rate and the simulation rate are
+// set independently and a slow frame never slows the simulation
+class SnapshotWorld extends World {
+  SimulationLoop loop;
+
+  SnapshotWorld(SimulationLoop loop) {
+    this.loop = loop;
+  }
+
+  // returns the fraction of a tick that has passed since the given snapshot
+  // was published, at most one
+  double alpha(GameSnapshot snapshot) {
+    return Math.min(1.0,
+        (System.nanoTime() - snapshot.publishedAt) / (double) this.loop.period());
+  }
+
+  // draws the latest snapshot between its previous state and its own, so the
+  // frame lags the simulation by up to a tick but never guesses ahead of it
+  public WorldScene makeScene() {
+    GameSnapshot snapshot = this.loop.latest.get();
+    return snapshot.between(this.alpha(snapshot)).makeScene();
+  }
+
+  public World onKeyEvent(String key) {
+    this.loop.press(key);
+    return this;
+  }
+
+  public WorldEnd worldEnds() {
+    AGame game = this.loop.latest.get().game;
+    if (game.isOver()) {
+      this.loop.stop();
+      return game.toDraw(game.player, game.enemies).worldEnds();
+    }
+    else {
+      return new WorldEnd(false, this.makeScene());
+    }
+  }
+
+  // starts the simulation and opens a window the size of its world, drawing
+  // it framesPerSecond times a second
+  boolean play(double framesPerSecond) {
+    WorldConfig world = this.loop.latest.get().game.world;
+    this.loop.start();
+    return this.bigBang(world.width, world.height, 1.0 / framesPerSecond);
+  }
+
+  // usage: SnapshotWorld [ticksPerSecond [framesPerSecond]]
+  // ticks at the world's tick rate unless given another
+  public static void main(String[] args) {
+    AGame game = AGame.fromProperty();
+    double ticksPerSecond = args.length > 0 ? Double.parseDouble(args[0])
+        : game.world.ticksPerSecond();
+    double framesPerSecond = args.length > 1 ? Double.parseDouble(args[1]) : 60;
+    GameMetrics metrics = new GameMetrics();
+    metrics.register("window");
+    metrics.dumpEvery(10000, System.err);
+    new SnapshotWorld(new SimulationLoop(game.withListener(metrics), ticksPerSecond))
+        .play(framesPerSecond);
+  }
+}
+
+// to represent the result of a headless simulation run
+class SimulationReport {
+  AGame game;
+  Fish player;
+  int ticks;
+  long nanos;
+
+  SimulationReport(AGame game, int ticks, long nanos) {
+    this.game = game;
+    this.player = game.player;
+    this.ticks = ticks;
+    this.nanos = nanos;
+  }
+
+  // returns the number of ticks simulated per second of wall-clock time
+  double ticksPerSecond() {
+    if (this.nanos == 0) {
+      return 0;
+    }
+    else {
+      return this.ticks * 1e9 / this.nanos;
+    }
+  }
+
+  public String toString() {
+    return "ticks=" + this.ticks + " ticks/s=" + Math.round(this.ticksPerSecond()) + " level="
+        + this.player.level + " experience=" + this.player.experience + " score="
+        + this.player.score + " eaten=" + this.player.color.equals(Color.RED);
+  }
+}
+
+// a key script that never presses a key
+class NoKeys implements IFunc2<Integer, AGame, String> {
+  public String apply(Integer tick, AGame game) {
+    return null;
+  }
+}
+
+// a key script that presses the nth key on the nth tick, where an empty key
+// means no key is pressed on that tick
+class ScriptedKeys implements IFunc2<Integer, AGame, String> {
+  String[] keys;
+
+  ScriptedKeys(String[] keys) {
+    this.keys = keys;
+  }
+
+  // parses a comma separated script such as "left,,,up,right"
+  ScriptedKeys(String script) {
+    this(script.split(",", -1));
+  }
+
+  public String apply(Integer tick, AGame game) {
+    if (tick >= this.keys.length || this.keys[tick].isEmpty()) {
+      return null;
+    }
+    else {
+      return this.keys[tick];
+    }
+  }
+}
+
+// to run a game without bigBang, stepping onKeyEvent and onTick as fast as the
+// CPU allows
+class HeadlessRunner {
+  IFunc2<Integer, AGame, String> keys;
+
+  HeadlessRunner(IFunc2<Integer, AGame, String> keys) {
+    this.keys = keys;
+  }
+
+  HeadlessRunner() {
+    this(new NoKeys());
+  }
+
+  // runs the given game until it is over or maxTicks ticks have passed
+  SimulationReport run(AGame game, int maxTicks) {
+    long start = System.nanoTime();
+    AGame current = game;
+    int tick = 0;
+    while (tick < maxTicks && !current.isOver()) {
+      String key = this.keys.apply(tick, current);
+      if (key != null) {
+        current = (AGame) current.onKeyEvent(key);
+      }
+      current = (AGame) current.onTick();
+      tick = tick + 1;
+    }
+    return new SimulationReport(current, tick, System.nanoTime() - start);
+  }
+
+  // usage: HeadlessRunner seed maxTicks [script]
+  public static void main(String[] args) {
+    long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+    int maxTicks = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+    HeadlessRunner runner;
+    if (args.length > 2) {
+      runner = new HeadlessRunner(new ScriptedKeys(args[2]));
+    }
+    else {
+      runner = new HeadlessRunner();
+    }
+    System.out.println(runner.run(AGame.fromProperty().restart(new GameRandom(seed)), maxTicks));
+  }
+}
+
+// a bot that presses a random arrow key every few ticks, seeded so that a
+// run can be repeated
+class RandomKeys implements IFunc2<Integer, AGame, String> {
+  static final String[] ARROWS = { "up", "down", "left", "right" };
+
+  Random rand;
+  int every;
+
+  // the bot's Random is seeded from botSeed(seed), not seed itself, so it
+  // does not walk the same LCG stream as a game's GameRandom with that seed
+  RandomKeys(long seed, int every) {
+    this.rand = new Random(botSeed(seed));
+    this.every = every;
+  }
+
+  // returns a seed for a bot playing the game with the given seed, mixed so
+  // that neighbouring seeds give unrelated bots; Random's first nextInt(4) is
+  // the same for every small seed, so using them directly would press the
+  // same first key in every game of a batch
+  static long botSeed(long seed) {
+    return new java.util.SplittableRandom(seed).split().nextLong();
+  }
+
+  public String apply(Integer tick, AGame game) {
+    if (tick % this.every == 0) {
+      return ARROWS[this.rand.nextInt(ARROWS.length)];
+    }
+    else {
+      return null;
+    }
+  }
+}
+
+// makes the starting game of the given kind for a seed
+class SeededGame implements IFunc<Long, AGame> {
+  AGame kind;
+
+  SeededGame(AGame kind) {
+    this.kind = kind;
+  }
+
+  public AGame apply(Long seed) {
+    return this.kind.restart(new GameRandom(seed));
+  }
+}
+
+// makes a RandomKeys bot for a seed
+class SeededRandomKeys implements IFunc<Long, IFunc2<Integer, AGame, String>> {
+  int every;
+
+  SeededRandomKeys(int every) {
+    this.every = every;
+  }
+
+  public IFunc2<Integer, AGame, String> apply(Long seed) {
+    return new RandomKeys(seed, this.every);
+  }
+}
+
+// to represent the outcome of one game in a batch
+class BatchResult {
+  long seed;
+  SimulationReport report;
+
+  BatchResult(long seed, SimulationReport report) {
+    this.seed = seed;
+    this.report = report;
+  }
+}
+
+// runs the game for one seed of a batch on a worker thread
+class BatchJob implements java.util.concurrent.Callable<BatchResult> {
+  BatchRunner batch;
+  long seed;
+
+  BatchJob(BatchRunner batch, long seed) {
+    this.batch = batch;
+    this.seed = seed;
+  }
+
+  public BatchResult call() {
+    return new BatchResult(this.seed, new HeadlessRunner(this.batch.bots.apply(this.seed))
+        .run(this.batch.games.apply(this.seed), this.batch.maxTicks));
+  }
+}
+
+// to run many independent seeded games at once across a pool of threads, with
+// no window, and summarize them as CSV or JSON
+class BatchRunner {
+  IFunc<Long, AGame> games;
+  IFunc<Long, IFunc2<Integer, AGame, String>> bots;
+  int maxTicks;
+  int threads;
+
+  BatchRunner(IFunc<Long, AGame> games, IFunc<Long, IFunc2<Integer, AGame, String>> bots,
+      int maxTicks, int threads) {
+    this.games = games;
+    this.bots = bots;
+    this.maxTicks = maxTicks;
+    this.threads = threads;
+  }
+
+  // runs one game per seed, returning the results in the order of the seeds
+  BatchResult[] run(long[] seeds) {
+    java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors
+        .newFixedThreadPool(this.threads);
+    try {
+      java.util.List<java.util.concurrent.Future<BatchResult>> pending =
+          new java.util.ArrayList<java.util.concurrent.Future<BatchResult>>();
+      for (long seed : seeds) {
+        pending.add(pool.submit(new BatchJob(this, seed)));
+      }
+      BatchResult[] results = new BatchResult[seeds.length];
+      for (int i = 0; i < results.length; i = i + 1) {
+        results[i] = pending.get(i).get();
+      }
+      return results;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch interrupted", e);
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      throw new IllegalStateException("A game in the batch failed", e.getCause());
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  // returns one CSV line per game after a header line
+  static String toCsv(BatchResult[] results) {
+    StringBuilder out = new StringBuilder(
+        "seed,ticks,level,experience,score,eaten,ticksPerSecond\n");
+    for (BatchResult r : results) {
+      Fish p = r.report.player;
+      out.append(r.seed).append(',').append(r.report.ticks).append(',').append(p.level)
+          .append(',').append(p.experience).append(',').append(p.score).append(',')
+          .append(p.color.equals(Color.RED)).append(',')
+          .append(Math.round(r.report.ticksPerSecond())).append('\n');
+    }
+    return out.toString();
+  }
+
+  // returns the games and their averages as a JSON object
+  static String toJson(BatchResult[] results) {
+    StringBuilder games = new StringBuilder();
+    double score = 0;
+    double level = 0;
+    double ticks = 0;
+    double ticksPerSecond = 0;
+    for (BatchResult r : results) {
+      Fish p = r.report.player;
+      if (games.length() > 0) {
+        games.append(",\n");
+      }
+      games.append("    {\"seed\": ").append(r.seed).append(", \"ticks\": ")
+          .append(r.report.ticks).append(", \"level\": ").append(p.level)
+          .append(", \"experience\": ").append(p.experience).append(", \"score\": ")
+          .append(p.score).append(", \"eaten\": ").append(p.color.equals(Color.RED))
+          .append(", \"ticksPerSecond\": ").append(Math.round(r.report.ticksPerSecond()))
+          .append("}");
+      score = score + p.score;
+      level = level + p.level;
+      ticks = ticks + r.report.ticks;
+      ticksPerSecond = ticksPerSecond + r.report.ticksPerSecond();
+    }
+    int n = Math.max(1, results.length);
+    return "{\n  \"games\": " + results.length + ",\n  \"meanScore\": " + score / n
+        + ",\n  \"meanLevel\": " + level / n + ",\n  \"meanTicks\": " + ticks / n
+        + ",\n  \"meanTicksPerSecond\": " + ticksPerSecond / n + ",\n  \"results\": [\n"
+        + games + "\n  ]\n}\n";
+  }
+
+  // usage: BatchRunner games [firstSeed [maxTicks [threads [csv|json]]]]
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+    int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+    int threads = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+    boolean json = args.length > 4 && args[4].equals("json");
+    // the games' seeds are drawn from firstSeed rather than counted up from
+    // it, so that neighbouring games do not start from related Randoms
+    java.util.SplittableRandom seedsFrom = new java.util.SplittableRandom(firstSeed);
+    long[] seeds = new long[count];
+    for (int i = 0; i < count; i = i + 1) {
+      seeds[i] = seedsFrom.nextLong();
+    }
+    BatchResult[] results = new BatchRunner(new SeededGame(AGame.fromProperty()),
+        new SeededRandomKeys(5), maxTicks, threads).run(seeds);
+    System.out.print(json ? toJson(results) : toCsv(results));
+  }
+}
+
+// to represent a recorded session: the seed of its Random and every arrow key
+// pressed, each with the tick it was pressed before
+// with the same seed, replaying the keys reproduces the session exactly
+class Replay {
+  // "FSHR", followed by a version byte
+  static final int MAGIC = 0x46534852;
+  static final byte VERSION = 1;
+  static final String[] KEYS = { "up", "down", "left", "right" };
+
+  long seed;
+  // the number of ticks the session lasted, so at least one more than the
+  // tick of its last key
+  int length;
+  int count;
+  int[] ticks;
+  byte[] keys;
+
+  Replay(long seed) {
+    this.seed = seed;
+    this.ticks = new int[16];
+    this.keys = new byte[16];
+  }
+
+  // records that the given key was pressed before the given tick; keys other
+  // than the arrows do nothing in the game and are not recorded
+  void record(int tick, String key) {
+    for (byte code = 0; code < KEYS.length; code = (byte) (code + 1)) {
+      if (KEYS[code].equals(key)) {
+        if (this.count == this.ticks.length) {
+          this.ticks = java.util.Arrays.copyOf(this.ticks, this.count * 2);
+          this.keys = java.util.Arrays.copyOf(this.keys, this.count * 2);
+        }
+        this.ticks[this.count] = tick;
+        this.keys[this.count] = code;
+        this.count = this.count + 1;
+        this.length = Math.max(this.length, tick + 1);
+      }
+    }
+  }
+
+  // encodes this replay as the magic number, version, seed, length and key
+  // count, then each key as the varint gap in ticks since the last key and a
+  // key byte
+  byte[] toBytes() {
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+    try {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(this.seed);
+      writeVarint(out, this.length);
+      writeVarint(out, this.count);
+      int last = 0;
+      for (int i = 0; i < this.count; i = i + 1) {
+        writeVarint(out, this.ticks[i] - last);
+        out.writeByte(this.keys[i]);
+        last = this.ticks[i];
+      }
+      out.flush();
+    }
+    catch (java.io.IOException e) {
+      throw new java.io.UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // decodes a replay made by toBytes, throwing IllegalArgumentException if the
+  // data is not one
+  static Replay fromBytes(byte[] data) {
+    java.io.DataInputStream in = new java.io.DataInputStream(
+        new java.io.ByteArrayInputStream(data));
+    try {
+      if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+        throw new IllegalArgumentException("Not a version " + VERSION + " fish replay");
+      }
+      Replay replay = new Replay(in.readLong());
+      int length = readVarint(in);
+      int count = readVarint(in);
+      int tick = 0;
+      for (int i = 0; i < count; i = i + 1) {
+        tick = tick + readVarint(in);
+        byte code = in.readByte();
+        if (code < 0 || code >= KEYS.length) {
+          throw new IllegalArgumentException("Unknown key " + code + " in fish replay");
+        }
+        replay.record(tick, KEYS[code]);
+      }
+      replay.length = length;
+      return replay;
+    }
+    catch (java.io.IOException e) {
+      throw new IllegalArgumentException("Truncated fish replay", e);
+    }
+  }
+
+  // writes n, which must not be negative, seven bits at a time
+  static void writeVarint(java.io.DataOutputStream out, int n) throws java.io.IOException {
+    int rest = n;
+    while ((rest & ~0x7F) != 0) {
+      out.writeByte((rest & 0x7F) | 0x80);
+      rest = rest >>> 7;
+    }
+    out.writeByte(rest);
+  }
+
+  // reads a number written by writeVarint
+  static int readVarint(java.io.DataInputStream in) throws java.io.IOException {
+    int n = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      n = n | ((b & 0x7F) << shift);
+      shift = shift + 7;
+    } while ((b & 0x80) != 0);
+    return n;
+  }
+
+  // plays the session from the game made for its seed up to the given tick,
+  // or until the game is over, as fast as the CPU allows
+  AGame playTo(IFunc<Long, AGame> games, int tick) {
+    return this.playFrom(games.apply(this.seed), 0, tick);
+  }
+
+  // plays the session from the given game, which is the state of the session
+  // before the keys of tick from, up to the given tick
+  AGame playFrom(AGame start, int from, int tick) {
+    AGame game = start;
+    int next = this.firstKeyAt(from);
+    for (int t = from; t < tick && !game.isOver(); t = t + 1) {
+      while (next < this.count && this.ticks[next] == t) {
+        game = (AGame) game.onKeyEvent(KEYS[this.keys[next]]);
+        next = next + 1;
+      }
+      game = (AGame) game.onTick();
+    }
+    return game;
+  }
+
+  // returns the index of the first key pressed at or after the given tick
+  int firstKeyAt(int tick) {
+    int lo = 0;
+    int hi = this.count;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.ticks[mid] < tick) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // plays the whole session
+  AGame play(IFunc<Long, AGame> games) {
+    return this.playTo(games, this.length);
+  }
+}
+
+// a key source that records every key another key source presses into a
+// replay
+class RecordKeys implements IFunc2<Integer, AGame, String> {
+  IFunc2<Integer, AGame, String> keys;
+  Replay replay;
+
+  RecordKeys(IFunc2<Integer, AGame, String> keys, Replay replay) {
+    this.keys = keys;
+    this.replay = replay;
+  }
+
+  public String apply(Integer tick, AGame game) {
+    String key = this.keys.apply(tick, game);
+    if (key != null) {
+      this.replay.record(tick, key);
+    }
+    this.replay.length = Math.max(this.replay.length, tick + 1);
+    return key;
+  }
+}
+
+// to represent a game played in a window that records the session into a
+// replay as it goes
+class RecordingWorld extends World {
+  AGame game;
+  Replay replay;
+  int tick;
+
+  RecordingWorld(AGame game, Replay replay, int tick) {
+    this.game = game;
+    this.replay = replay;
+    this.tick = tick;
+  }
+
+  // starts a new game of the given kind whose Random is seeded with the given
+  // seed
+  RecordingWorld(AGame kind, long seed) {
+    this(kind.restart(new GameRandom(seed)), new Replay(seed), 0);
+  }
+
+  public World onKeyEvent(String key) {
+    this.replay.record(this.tick, key);
+    return new RecordingWorld((AGame) this.game.onKeyEvent(key), this.replay, this.tick);
+  }
+
+  public World onTick() {
+    this.replay.length = this.tick + 1;
+    return new RecordingWorld((AGame) this.game.onTick(), this.replay, this.tick + 1);
+  }
+
+  public WorldScene makeScene() {
+    return this.game.makeScene();
+  }
+
+  public WorldEnd worldEnds() {
+    return this.game.worldEnds();
+  }
+}
+
+// to represent a Random whose state can be read and restored, so that a game
+// can be saved and resumed with the same enemies to come; it draws exactly
+// the same numbers as a Random with the same seed
+class GameRandom extends Random {
+  static final long serialVersionUID = 1L;
+  static final long MULTIPLIER = 0x5DEECE66DL;
+  static final long ADDEND = 0xBL;
+  static final long MASK = (1L << 48) - 1;
+
+  long state;
+
+  GameRandom(long seed) {
+    super(seed);
+  }
+
+  GameRandom() {
+    super();
+  }
+
+  // Random's constructors call this, so state is set before it is first used
+  public synchronized void setSeed(long seed) {
+    super.setSeed(seed);
+    this.state = (seed ^ MULTIPLIER) & MASK;
+  }
+
+  protected int next(int bits) {
+    this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+    return (int) (this.state >>> (48 - bits));
+  }
+
+  // returns the 48 bits that decide every number still to come
+  long getState() {
+    return this.state;
+  }
+
+  // returns a Random that continues from the given state
+  static GameRandom fromState(long state) {
+    GameRandom rand = new GameRandom(0);
+    rand.state = state & MASK;
+    return rand;
+  }
+}
+
+// to encode a whole game (the player, the enemies and the state of its
+// Random) as a few bytes per fish
+class GameCodec {
+  // "FSHS", followed by a version byte
+  static final int MAGIC = 0x46534853;
+  static final byte VERSION = 1;
+  // the colors a fish can have in one byte; any other is written out in full
+  static final Color[] COLORS = { Color.BLACK, Color.RED };
+  // the fewest bytes writeFish writes for a fish: seven one-byte varints, a
+  // facing byte and a color byte
+  static final int MIN_FISH_BYTES = 9;
+
+  // encodes the game as the magic number, version and Random state, then the
+  // player, the number of enemies and each enemy from the front of the list
+  static byte[] encode(AGame game) {
+    if (!(game.rand instanceof GameRandom)) {
+      throw new IllegalArgumentException("Only a game played with a GameRandom can be saved");
+    }
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream(
+        64 + 16 * game.enemies.length());
+    java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+    try {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(((GameRandom) game.rand).getState());
+      writeFish(out, game.player);
+      Object[] enemies = game.enemies.toArray();
+      Replay.writeVarint(out, enemies.length);
+      for (int i = 0; i < enemies.length; i = i + 1) {
+        writeFish(out, (Fish) enemies[i]);
+      }
+      out.flush();
+    }
+    catch (java.io.IOException e) {
+      throw new java.io.UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // decodes a game made by encode, taking the enemy list representation,
+  // renderer and pool from settings, throwing IllegalArgumentException if the
+  // data is not one
+  static AGame decode(byte[] data, AGame settings) {
+    java.io.DataInputStream in = new java.io.DataInputStream(
+        new java.io.ByteArrayInputStream(data));
+    try {
+      if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+        throw new IllegalArgumentException("Not a version " + VERSION + " fish snapshot");
+      }
+      GameRandom rand = GameRandom.fromState(in.readLong());
+      Fish player = readFish(in);
+      int count = Replay.readVarint(in);
+      if (count < 0 || count > in.available() / MIN_FISH_BYTES) {
+        throw new IllegalArgumentException("Bad enemy count " + count + " in fish snapshot");
+      }
+      Object[] enemies = new Object[count];
+      for (int i = 0; i < count; i = i + 1) {
+        enemies[i] = readFish(in);
+      }
+      return settings.make(player, settings.enemies.<Fish>rebuild(enemies, count), rand,
+          settings.renderer, settings.pool, settings.listener, settings.inPlace, settings.world);
+    }
+    catch (java.io.IOException e) {
+      throw new IllegalArgumentException("Truncated fish snapshot", e);
+    }
+  }
+
+  // writes a fish as its position and velocity as signed varints, its level,
+  // experience and score as varints, then a facing byte and a color byte
+  static void writeFish(java.io.DataOutputStream out, Fish fish) throws java.io.IOException {
+    writeSigned(out, fish.coordinates.x);
+    writeSigned(out, fish.coordinates.y);
+    writeSigned(out, fish.velocity.x);
+    writeSigned(out, fish.velocity.y);
+    Replay.writeVarint(out, fish.level);
+    Replay.writeVarint(out, fish.experience);
+    Replay.writeVarint(out, fish.score);
+    out.writeByte(FishStore.facingCode(fish.facing));
+    int color = COLORS.length;
+    for (int i = 0; i < COLORS.length; i = i + 1) {
+      if (COLORS[i].equals(fish.color)) {
+        color = i;
+      }
+    }
+    out.writeByte(color);
+    if (color == COLORS.length) {
+      out.writeInt(fish.color.getRGB());
+    }
+  }
+
+  // reads a fish written by writeFish, throwing IllegalArgumentException for
+  // a facing or color byte it could not have written
+  static Fish readFish(java.io.DataInputStream in) throws java.io.IOException {
+    int x = readSigned(in);
+    int y = readSigned(in);
+    int vx = readSigned(in);
+    int vy = readSigned(in);
+    int level = Replay.readVarint(in);
+    int experience = Replay.readVarint(in);
+    int score = Replay.readVarint(in);
+    int facing = in.readUnsignedByte();
+    if (facing >= FishStore.FACINGS.length) {
+      throw new IllegalArgumentException("Unknown facing " + facing + " in fish snapshot");
+    }
+    int color = in.readUnsignedByte();
+    if (color > COLORS.length) {
+      throw new IllegalArgumentException("Unknown color " + color + " in fish snapshot");
+    }
+    return new Fish(new APosn(x, y), new APosn(vx, vy), level, experience, score,
+        FishStore.FACINGS[facing],
+        color < COLORS.length ? COLORS[color] : new Color(in.readInt(), true));
+  }
+
+  // writes n as a varint with its sign in the lowest bit, so that small
+  // negative numbers stay short
+  static void writeSigned(java.io.DataOutputStream out, int n) throws java.io.IOException {
+    Replay.writeVarint(out, (n << 1) ^ (n >> 31));
+  }
+
+  // reads a number written by writeSigned
+  static int readSigned(java.io.DataInputStream in) throws java.io.IOException {
+    int n = Replay.readVarint(in);
+    return (n >>> 1) ^ -(n & 1);
+  }
+}
+
+// to represent the snapshots of a session taken every few ticks, so that any
+// tick can be reached by restoring the snapshot before it and replaying at
+// most that many ticks of keys
+class SnapshotLog {
+  int every;
+  int count;
+  int[] ticks;
+  byte[][] states;
+
+  SnapshotLog(int every) {
+    if (every <= 0) {
+      throw new IllegalArgumentException("Snapshots must be at least one tick apart");
+    }
+    this.every = every;
+    this.ticks = new int[16];
+    this.states = new byte[16][];
+  }
+
+  // saves the game as the state before the keys of the given tick, if the
+  // tick is one to snapshot and has not been saved yet
+  void take(int tick, AGame game) {
+    if (tick % this.every == 0 && (this.count == 0 || this.ticks[this.count - 1] < tick)) {
+      if (this.count == this.ticks.length) {
+        this.ticks = java.util.Arrays.copyOf(this.ticks, this.count * 2);
+        this.states = java.util.Arrays.copyOf(this.states, this.count * 2);
+      }
+      this.ticks[this.count] = tick;
+      this.states[this.count] = GameCodec.encode(game);
+      this.count = this.count + 1;
+    }
+  }
+
+  // returns the index of the last snapshot at or before the given tick, or -1
+  // if there is none
+  int lastAt(int tick) {
+    int lo = 0;
+    int hi = this.count;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.ticks[mid] <= tick) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo - 1;
+  }
+
+  // returns the session recorded in the replay at the given tick, starting
+  // from the last snapshot before it, or from the game made for the seed if
+  // there is none
+  AGame seek(Replay replay, IFunc<Long, AGame> games, int tick) {
+    int i = this.lastAt(tick);
+    if (i < 0) {
+      return replay.playTo(games, tick);
+    }
+    else {
+      return replay.playFrom(GameCodec.decode(this.states[i], games.apply(replay.seed)),
+          this.ticks[i], tick);
+    }
+  }
+}
+
+// a key source that snapshots the game into a log before asking another key
+// source for the key
+class SnapshotKeys implements IFunc2<Integer, AGame, String> {
+  IFunc2<Integer, AGame, String> keys;
+  SnapshotLog log;
+
+  SnapshotKeys(IFunc2<Integer, AGame, String> keys, SnapshotLog log) {
+    this.keys = keys;
+    this.log = log;
+  }
+
+  public String apply(Integer tick, AGame game) {
+    this.log.take(tick, game);
+    return this.keys.apply(tick, game);
+  }
+}
+
+// to represent something told of the events of a game as they happen, on
+// the thread that causes them; every event is ignored unless a subclass
+// overrides it
+abstract class GameListener {
+  // the given key was pressed while the player was as given
+  void keyPressed(String key, Fish player) {
+  }
+
+  // the given game is about to tick
+  void tickStarted(AGame game) {
+  }
+
+  // addEnemy added the given enemy
+  void spawned(Fish enemy) {
+  }
+
+  // the player, as given, ate the given enemy
+  void ate(Fish player, Fish prey) {
+  }
+
+  // the player, as given, was eaten by the given enemy
+  void eaten(Fish player, Fish hunter) {
+  }
+
+  // the game has ticked into the given game
+  void tickEnded(AGame next) {
+  }
+
+  // the given game is about to draw its scene
+  void drawStarted(AGame game) {
+  }
+
+  // the given game has drawn its scene
+  void drawEnded(AGame game) {
+  }
+
+  // the given game is about to check whether the world has ended
+  void endsStarted(AGame game) {
+  }
+
+  // the given game has checked whether the world has ended
+  void endsEnded(AGame game, WorldEnd end) {
+  }
+}
+
+// to tell several listeners of each event, in order
+class GameListeners extends GameListener {
+  GameListener[] listeners;
+
+  GameListeners(GameListener[] listeners) {
+    this.listeners = listeners;
+  }
+
+  void keyPressed(String key, Fish player) {
+    for (GameListener l : this.listeners) {
+      l.keyPressed(key, player);
+    }
+  }
+
+  void tickStarted(AGame game) {
+    for (GameListener l : this.listeners) {
+      l.tickStarted(game);
+    }
+  }
+
+  void spawned(Fish enemy) {
+    for (GameListener l : this.listeners) {
+      l.spawned(enemy);
+    }
+  }
+
+  void ate(Fish player, Fish prey) {
+    for (GameListener l : this.listeners) {
+      l.ate(player, prey);
+    }
+  }
+
+  void eaten(Fish player, Fish hunter) {
+    for (GameListener l : this.listeners) {
+      l.eaten(player, hunter);
+    }
+  }
+
+  void tickEnded(AGame next) {
+    for (GameListener l : this.listeners) {
+      l.tickEnded(next);
+    }
+  }
+
+  void drawStarted(AGame game) {
+    for (GameListener l : this.listeners) {
+      l.drawStarted(game);
+    }
+  }
+
+  void drawEnded(AGame game) {
+    for (GameListener l : this.listeners) {
+      l.drawEnded(game);
+    }
+  }
+
+  void endsStarted(AGame game) {
+    for (GameListener l : this.listeners) {
+      l.endsStarted(game);
+    }
+  }
+
+  void endsEnded(AGame game, WorldEnd end) {
+    for (GameListener l : this.listeners) {
+      l.endsEnded(game, end);
+    }
+  }
+}
+
+// to represent an append-only file of the events of a session, written
+// through memory-mapped chunks so that a long session keeps none of it on the
+// heap; the file is a 32 byte header (magic number, version, seed and record
+// count) followed by 16 byte records of the tick, type, code, level, x and y
+class TickLog extends GameListener implements java.io.Closeable {
+  // "FSHL"
+  static final int MAGIC = 0x4653484C;
+  static final int VERSION = 1;
+  static final int HEADER = 32;
+  static final int RECORD = 16;
+  // the bytes mapped at a time, a whole number of records
+  static final int CHUNK = 1 << 20;
+  // a key press, whose code is its index in Replay.KEYS and whose fish is the
+  // player as the key was pressed
+  static final byte KEY = 0;
+  // an enemy added by addEnemy, whose code is its facing
+  static final byte SPAWN = 1;
+  // an enemy eaten by the player
+  static final byte EAT = 2;
+  // the player, eaten by an enemy, whose fish is that enemy
+  static final byte EATEN = 3;
+
+  java.nio.channels.FileChannel channel;
+  java.nio.MappedByteBuffer header;
+  java.nio.MappedByteBuffer chunk;
+  long chunkStart;
+  long count;
+  int tick;
+
+  // creates the log at the given path, replacing any file there
+  TickLog(java.nio.file.Path path, long seed) {
+    try {
+      this.channel = java.nio.channels.FileChannel.open(path,
+          java.nio.file.StandardOpenOption.CREATE,
+          java.nio.file.StandardOpenOption.TRUNCATE_EXISTING,
+          java.nio.file.StandardOpenOption.READ, java.nio.file.StandardOpenOption.WRITE);
+      this.header = this.channel.map(java.nio.channels.FileChannel.MapMode.READ_WRITE, 0,
+          HEADER);
+      this.header.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, seed).putLong(16, 0);
+      this.chunkStart = HEADER;
+      this.chunk = this.channel.map(java.nio.channels.FileChannel.MapMode.READ_WRITE,
+          this.chunkStart, CHUNK);
+    }
+    catch (java.io.IOException e) {
+      throw new java.io.UncheckedIOException(e);
+    }
+  }
+
+  // records that the given key was pressed; keys other than the arrows do
+  // nothing in the game and are not recorded
+  void key(String key, Fish player) {
+    for (byte code = 0; code < Replay.KEYS.length; code = (byte) (code + 1)) {
+      if (Replay.KEYS[code].equals(key)) {
+        this.append(KEY, code, player.level, player.coordinates.x, player.coordinates.y);
+      }
+    }
+  }
+
+  void keyPressed(String key, Fish player) {
+    this.key(key, player);
+  }
+
+  void spawned(Fish enemy) {
+    this.append(SPAWN, enemy);
+  }
+
+  void ate(Fish player, Fish prey) {
+    this.append(EAT, prey);
+  }
+
+  void eaten(Fish player, Fish hunter) {
+    this.append(EATEN, hunter);
+  }
+
+  void tickEnded(AGame next) {
+    this.endTick();
+  }
+
+  // records an event of the given type about the given fish
+  void append(byte type, Fish fish) {
+    this.append(type, FishStore.facingCode(fish.facing), fish.level, fish.coordinates.x,
+        fish.coordinates.y);
+  }
+
+  // writes one record at the end of the log, mapping the next chunk of the
+  // file when this one is full; the count in the header is updated after the
+  // record, so a reader never sees a half written one, and if the process dies
+  // the pages it dirtied still reach the file; only close forces them to the
+  // disk, so a power loss or an OS crash may lose any part of the log
+  void append(byte type, byte code, int level, int x, int y) {
+    if (!this.chunk.hasRemaining()) {
+      try {
+        this.chunkStart = this.chunkStart + CHUNK;
+        this.chunk = this.channel.map(java.nio.channels.FileChannel.MapMode.READ_WRITE,
+            this.chunkStart, CHUNK);
+      }
+      catch (java.io.IOException e) {
+        throw new java.io.UncheckedIOException(e);
+      }
+    }
+    this.chunk.putInt(this.tick).put(type).put(code).putShort((short) level).putInt(x)
+        .putInt(y);
+    this.count = this.count + 1;
+    this.header.putLong(16, this.count);
+  }
+
+  // moves on to the next tick
+  void endTick() {
+    this.tick = this.tick + 1;
+  }
+
+  // flushes the log to disk; the file keeps the unused end of its last chunk,
+  // which readers skip by the record count
+  public void close() throws java.io.IOException {
+    this.chunk.force();
+    this.header.force();
+    this.channel.close();
+  }
+}
+
+// to read a TickLog in place: each record is read straight from the mapped
+// file by index, without copying it onto the heap or making a Fish
+class TickLogReader implements java.io.Closeable {
+  static final int PER_CHUNK = TickLog.CHUNK / TickLog.RECORD;
+
+  java.nio.channels.FileChannel channel;
+  java.nio.MappedByteBuffer[] chunks;
+  long seed;
+  long count;
+
+  TickLogReader(java.nio.file.Path path) {
+    try {
+      this.channel = java.nio.channels.FileChannel.open(path,
+          java.nio.file.StandardOpenOption.READ);
+      java.nio.MappedByteBuffer header = this.channel
+          .map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, TickLog.HEADER);
+      if (header.getInt(0) != TickLog.MAGIC || header.getInt(4) != TickLog.VERSION) {
+        throw new IllegalArgumentException("Not a version " + TickLog.VERSION + " tick log");
+      }
+      this.seed = header.getLong(8);
+      this.count = header.getLong(16);
+      this.chunks = new java.nio.MappedByteBuffer[(int) ((this.count + PER_CHUNK - 1)
+          / PER_CHUNK)];
+      for (int i = 0; i < this.chunks.length; i = i + 1) {
+        long records = Math.min(PER_CHUNK, this.count - (long) i * PER_CHUNK);
+        this.chunks[i] = this.channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,
+            TickLog.HEADER + (long) i * TickLog.CHUNK, records * TickLog.RECORD);
+      }
+    }
+    catch (java.io.IOException e) {
+      throw new java.io.UncheckedIOException(e);
+    }
+  }
+
+  // returns the offset of record i in its chunk
+  int offset(long i) {
+    return (int) (i % PER_CHUNK) * TickLog.RECORD;
+  }
+
+  // returns the chunk holding record i
+  java.nio.MappedByteBuffer chunk(long i) {
+    return this.chunks[(int) (i / PER_CHUNK)];
+  }
+
+  int tick(long i) {
+    return this.chunk(i).getInt(this.offset(i));
+  }
+
+  byte type(long i) {
+    return this.chunk(i).get(this.offset(i) + 4);
+  }
+
+  byte code(long i) {
+    return this.chunk(i).get(this.offset(i) + 5);
+  }
+
+  int level(long i) {
+    return this.chunk(i).getShort(this.offset(i) + 6);
+  }
+
+  int x(long i) {
+    return this.chunk(i).getInt(this.offset(i) + 8);
+  }
+
+  int y(long i) {
+    return this.chunk(i).getInt(this.offset(i) + 12);
+  }
+
+  // returns the number of records of the given type
+  long countOf(byte type) {
+    long n = 0;
+    for (long i = 0; i < this.count; i = i + 1) {
+      if (this.type(i) == type) {
+        n = n + 1;
+      }
+    }
+    return n;
+  }
+
+  // returns the replay of the keys in this log
+  Replay toReplay() {
+    Replay replay = new Replay(this.seed);
+    for (long i = 0; i < this.count; i = i + 1) {
+      if (this.type(i) == TickLog.KEY) {
+        replay.record(this.tick(i), Replay.KEYS[this.code(i)]);
+      }
+    }
+    return replay;
+  }
+
+  public void close() throws java.io.IOException {
+    this.channel.close();
+  }
+
+  // usage: TickLogReader file
+  public static void main(String[] args) throws java.io.IOException {
+    try (TickLogReader reader = new TickLogReader(java.nio.file.Paths.get(args[0]))) {
+      System.out.println("seed " + reader.seed + ", " + reader.count + " records: "
+          + reader.countOf(TickLog.KEY) + " keys, " + reader.countOf(TickLog.SPAWN)
+          + " spawns, " + reader.countOf(TickLog.EAT) + " eats, "
+          + reader.countOf(TickLog.EATEN) + " eaten");
+    }
+  }
+}
+
+// the Java Flight Recorder events of a game, in the "Fish Game" category, so
+// that a session recorded with jcmd <pid> JFR.start can line up frame time
+// spikes with what the simulation was doing
+@jdk.jfr.Name("fishgame.Tick")
+@jdk.jfr.Label("Tick")
+@jdk.jfr.Category("Fish Game")
+@jdk.jfr.Description("One call of AGame.onTick")
+class TickEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Enemies")
+  int enemies;
+}
+
+@jdk.jfr.Name("fishgame.Spawn")
+@jdk.jfr.Label("Spawn")
+@jdk.jfr.Category("Fish Game")
+@jdk.jfr.Description("An enemy added by AGame.addEnemy")
+class SpawnEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Level")
+  int level;
+  @jdk.jfr.Label("Side")
+  @jdk.jfr.Description("The side of the screen the enemy swims in from")
+  String side;
+}
+
+@jdk.jfr.Name("fishgame.Collision")
+@jdk.jfr.Label("Collision")
+@jdk.jfr.Category("Fish Game")
+@jdk.jfr.Description("The player eating an enemy, or being eaten")
+class CollisionEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Eaten")
+  @jdk.jfr.Description("Whether the player was eaten rather than eating")
+  boolean eaten;
+  @jdk.jfr.Label("Player Level")
+  int playerLevel;
+  @jdk.jfr.Label("Enemy Level")
+  int enemyLevel;
+}
+
+@jdk.jfr.Name("fishgame.Render")
+@jdk.jfr.Label("Render")
+@jdk.jfr.Category("Fish Game")
+@jdk.jfr.Description("One call of AGame.makeScene")
+class RenderEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Entities")
+  int entities;
+}
+
+// emits the flight recorder events of a game; the event being timed is kept
+// per kind, as a game may tick and draw on different threads
+class FishEvents extends GameListener {
+  TickEvent tick;
+  RenderEvent render;
+
+  void tickStarted(AGame game) {
+    TickEvent event = new TickEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      this.tick = event;
+    }
+  }
+
+  void tickEnded(AGame next) {
+    TickEvent event = this.tick;
+    if (event != null) {
+      this.tick = null;
+      event.end();
+      if (event.shouldCommit()) {
+        event.enemies = next.enemies.length();
+        event.commit();
+      }
+    }
+  }
+
+  void spawned(Fish enemy) {
+    SpawnEvent event = new SpawnEvent();
+    if (event.isEnabled()) {
+      event.level = enemy.level;
+      if (enemy.facing.equals("left")) {
+        event.side = "right";
+      }
+      else {
+        event.side = "left";
+      }
+      event.commit();
+    }
+  }
+
+  void ate(Fish player, Fish prey) {
+    this.collided(false, player, prey);
+  }
+
+  void eaten(Fish player, Fish hunter) {
+    this.collided(true, player, hunter);
+  }
+
+  // emits a collision between the player and the given enemy
+  void collided(boolean eaten, Fish player, Fish enemy) {
+    CollisionEvent event = new CollisionEvent();
+    if (event.isEnabled()) {
+      event.eaten = eaten;
+      event.playerLevel = player.level;
+      if (enemy != null) {
+        event.enemyLevel = enemy.level;
+      }
+      event.commit();
+    }
+  }
+
+  void drawStarted(AGame game) {
+    RenderEvent event = new RenderEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      this.render = event;
+    }
+  }
+
+  void drawEnded(AGame game) {
+    RenderEvent event = this.render;
+    if (event != null) {
+      this.render = null;
+      event.end();
+      if (event.shouldCommit()) {
+        event.entities = game.enemies.length() + 1;
+        event.commit();
+      }
+    }
+  }
+}
+
+// to represent a histogram of durations in nanoseconds, with eight buckets
+// for each power of two, so that a percentile is never more than an eighth
+// above the true value
+class LatencyHistogram {
+  static final int SUB = 8;
+
+  long[] counts = new long[64 * SUB];
+  long count;
+  long max;
+
+  // returns the bucket of the given duration
+  static int bucket(long nanos) {
+    if (nanos < SUB) {
+      return (int) Math.max(nanos, 0);
+    }
+    else {
+      int exp = 63 - Long.numberOfLeadingZeros(nanos);
+      return (exp - 2) * SUB + (int) ((nanos >>> (exp - 3)) & (SUB - 1));
+    }
+  }
+
+  // returns the largest duration that falls in the given bucket
+  static long upperBound(int bucket) {
+    if (bucket < SUB) {
+      return bucket;
+    }
+    else {
+      int exp = bucket / SUB + 2;
+      return ((long) (SUB + bucket % SUB + 1) << (exp - 3)) - 1;
+    }
+  }
+
+  synchronized void record(long nanos) {
+    int bucket = bucket(nanos);
+    this.counts[bucket] = this.counts[bucket] + 1;
+    this.count = this.count + 1;
+    this.max = Math.max(this.max, nanos);
+  }
+
+  // returns the duration that the given fraction of recorded durations are at
+  // or below, or 0 if none have been recorded
+  synchronized long percentile(double fraction) {
+    long target = (long) Math.ceil(fraction * this.count);
+    long seen = 0;
+    for (int i = 0; i < this.counts.length; i = i + 1) {
+      seen = seen + this.counts[i];
+      if (seen >= target && seen > 0) {
+        return Math.min(upperBound(i), this.max);
+      }
+    }
+    return 0;
+  }
+
+  synchronized long max() {
+    return this.max;
+  }
+
+  synchronized long count() {
+    return this.count;
+  }
+
+  synchronized void reset() {
+    java.util.Arrays.fill(this.counts, 0);
+    this.count = 0;
+    this.max = 0;
+  }
+
+  // returns the count, p50, p99 and max in microseconds
+  public String toString() {
+    return String.format("n=%d p50=%.1fus p99=%.1fus max=%.1fus", this.count(),
+        this.percentile(0.5) / 1000.0, this.percentile(0.99) / 1000.0, this.max() / 1000.0);
+  }
+}
+
+// to measure a running game: how long each onTick, makeScene and worldEnds
+// takes, the bytes each tick allocates, and how many enemies there are,
+// spawn and are eaten, alongside the JVM's garbage collections
+// the metrics can be read over JMX once registered, and dumped as text
+class GameMetrics extends GameListener implements javax.management.DynamicMBean {
+  static final String[] ATTRIBUTES = { "Ticks", "TickP50Nanos", "TickP99Nanos", "TickMaxNanos",
+      "SceneP50Nanos", "SceneP99Nanos", "SceneMaxNanos", "EndsP50Nanos", "EndsP99Nanos",
+      "EndsMaxNanos", "BytesPerTick", "Enemies", "Spawns", "Eats", "Eaten", "GcCount",
+      "GcMillis" };
+
+  LatencyHistogram tick = new LatencyHistogram();
+  LatencyHistogram scene = new LatencyHistogram();
+  LatencyHistogram ends = new LatencyHistogram();
+  // when the running call began, one for each, as ticking and drawing may
+  // happen on different threads
+  long tickStart;
+  long sceneStart;
+  long endsStart;
+  long allocatedAtStart;
+  volatile long allocated;
+  volatile int enemies;
+  volatile long spawns;
+  volatile long eats;
+  volatile long eaten;
+
+  // returns the bytes this thread has allocated so far, or 0 if the JVM
+  // cannot tell
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory
+        .getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // returns the total collections and milliseconds spent collecting of every
+  // garbage collector
+  static long[] gcTotals() {
+    long[] totals = new long[2];
+    for (java.lang.management.GarbageCollectorMXBean gc : java.lang.management.ManagementFactory
+        .getGarbageCollectorMXBeans()) {
+      totals[0] = totals[0] + Math.max(gc.getCollectionCount(), 0);
+      totals[1] = totals[1] + Math.max(gc.getCollectionTime(), 0);
+    }
+    return totals;
+  }
+
+  void tickStarted(AGame game) {
+    this.allocatedAtStart = allocatedBytes();
+    this.tickStart = System.nanoTime();
+  }
+
+  void spawned(Fish enemy) {
+    this.spawns = this.spawns + 1;
+  }
+
+  void ate(Fish player, Fish prey) {
+    this.eats = this.eats + 1;
+  }
+
+  void eaten(Fish player, Fish hunter) {
+    this.eaten = this.eaten + 1;
+  }
+
+  void tickEnded(AGame next) {
+    this.tick.record(System.nanoTime() - this.tickStart);
+    this.allocated = this.allocated + (allocatedBytes() - this.allocatedAtStart);
+    this.enemies = next.enemies.length();
+  }
+
+  void drawStarted(AGame game) {
+    this.sceneStart = System.nanoTime();
+  }
+
+  void drawEnded(AGame game) {
+    this.scene.record(System.nanoTime() - this.sceneStart);
+  }
+
+  void endsStarted(AGame game) {
+    this.endsStart = System.nanoTime();
+  }
+
+  void endsEnded(AGame game, WorldEnd end) {
+    this.ends.record(System.nanoTime() - this.endsStart);
+  }
+
+  // returns the average bytes allocated by a tick
+  double bytesPerTick() {
+    long ticks = this.tick.count();
+    return ticks == 0 ? 0 : this.allocated / (double) ticks;
+  }
+
+  // starts over, keeping the current enemy count
+  void reset() {
+    this.tick.reset();
+    this.scene.reset();
+    this.ends.reset();
+    this.allocated = 0;
+    this.spawns = 0;
+    this.eats = 0;
+    this.eaten = 0;
+  }
+
+  // registers these metrics with the platform MBean server under
+  // fishgame:type=GameMetrics,name=<name>
+  void register(String name) {
+    try {
+      java.lang.management.ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+          new javax.management.ObjectName("fishgame:type=GameMetrics,name=" + name));
+    }
+    catch (javax.management.JMException e) {
+      throw new IllegalStateException("Cannot register game metrics " + name, e);
+    }
+  }
+
+  // prints these metrics to the given stream every period on a daemon
+  // thread, until the returned timer is cancelled
+  java.util.Timer dumpEvery(long periodMillis, java.io.PrintStream out) {
+    java.util.Timer timer = new java.util.Timer("fish-metrics", true);
+    timer.scheduleAtFixedRate(new MetricsDump(this, out), periodMillis, periodMillis);
+    return timer;
+  }
+
+  public String toString() {
+    long[] gc = gcTotals();
+    return String.format(
+        "onTick     %s%nmakeScene  %s%nworldEnds  %s%n"
+            + "bytes/tick %.0f  enemies %d  spawns %d  eats %d  eaten %d  gc %d (%d ms)",
+        this.tick, this.scene, this.ends, this.bytesPerTick(), this.enemies, this.spawns,
+        this.eats, this.eaten, gc[0], gc[1]);
+  }
+
+  public Object getAttribute(String attribute)
+      throws javax.management.AttributeNotFoundException {
+    if (attribute.equals("Ticks")) {
+      return this.tick.count();
+    }
+    else if (attribute.equals("TickP50Nanos")) {
+      return this.tick.percentile(0.5);
+    }
+    else if (attribute.equals("TickP99Nanos")) {
+      return this.tick.percentile(0.99);
+    }
+    else if (attribute.equals("TickMaxNanos")) {
+      return this.tick.max();
+    }
+    else if (attribute.equals("SceneP50Nanos")) {
+      return this.scene.percentile(0.5);
+    }
+    else if (attribute.equals("SceneP99Nanos")) {
+      return this.scene.percentile(0.99);
+    }
+    else if (attribute.equals("SceneMaxNanos")) {
+      return this.scene.max();
+    }
+    else if (attribute.equals("EndsP50Nanos")) {
+      return this.ends.percentile(0.5);
+    }
+    else if (attribute.equals("EndsP99Nanos")) {
+      return this.ends.percentile(0.99);
+    }
+    else if (attribute.equals("EndsMaxNanos")) {
+      return this.ends.max();
+    }
+    else if (attribute.equals("BytesPerTick")) {
+      return (long) this.bytesPerTick();
+    }
+    else if (attribute.equals("Enemies")) {
+      return (long) this.enemies;
+    }
+    else if (attribute.equals("Spawns")) {
+      return this.spawns;
+    }
+    else if (attribute.equals("Eats")) {
+      return this.eats;
+    }
+    else if (attribute.equals("Eaten")) {
+      return this.eaten;
+    }
+    else if (attribute.equals("GcCount")) {
+      return gcTotals()[0];
+    }
+    else if (attribute.equals("GcMillis")) {
+      return gcTotals()[1];
+    }
+    else {
+      throw new javax.management.AttributeNotFoundException(attribute);
+    }
+  }
+
+  public javax.management.AttributeList getAttributes(String[] attributes) {
+    javax.management.AttributeList list = new javax.management.AttributeList();
+    for (String name : attributes) {
+      try {
+        list.add(new javax.management.Attribute(name, this.getAttribute(name)));
+      }
+      catch (javax.management.AttributeNotFoundException e) {
+        // left out of the list, as getAttributes does for any it cannot read
+      }
+    }
+    return list;
+  }
+
+  public void setAttribute(javax.management.Attribute attribute)
+      throws javax.management.AttributeNotFoundException {
+    throw new javax.management.AttributeNotFoundException(
+        "Game metrics are read only: " + attribute.getName());
+  }
+
+  public javax.management.AttributeList setAttributes(javax.management.AttributeList attributes) {
+    return new javax.management.AttributeList();
+  }
+
+  public Object invoke(String action, Object[] params, String[] signature)
+      throws javax.management.ReflectionException {
+    if (action.equals("reset")) {
+      this.reset();
+      return null;
+    }
+    else {
+      throw new javax.management.ReflectionException(new NoSuchMethodException(action),
+          "Unknown operation: " + action);
+    }
+  }
+
+  public javax.management.MBeanInfo getMBeanInfo() {
+    javax.management.MBeanAttributeInfo[] attributes =
+        new javax.management.MBeanAttributeInfo[ATTRIBUTES.length];
+    for (int i = 0; i < ATTRIBUTES.length; i = i + 1) {
+      attributes[i] = new javax.management.MBeanAttributeInfo(ATTRIBUTES[i], "long",
+          ATTRIBUTES[i], true, false, false);
+    }
+    javax.management.MBeanOperationInfo[] operations = {
+        new javax.management.MBeanOperationInfo("reset", "Starts the metrics over",
+            new javax.management.MBeanParameterInfo[0], "void",
+            javax.management.MBeanOperationInfo.ACTION) };
+    return new javax.management.MBeanInfo(GameMetrics.class.getName(),
+        "Latency, allocation and event counts of a fish game", attributes, null, operations,
+        null);
+  }
+}
+
+// prints a game's metrics each time it runs
+class MetricsDump extends java.util.TimerTask {
+  GameMetrics metrics;
+  java.io.PrintStream out;
+
+  MetricsDump(GameMetrics metrics, java.io.PrintStream out) {
+    this.metrics = metrics;
+    this.out = out;
+  }
+
+  public void run() {
+    this.out.println(this.metrics);
+  }
+}
+
+// to represent one list or game operation measured by GameBenchmarks
+class BenchOp implements IFunc<AGame, Object> {
+  String name;
+  // the starting enemies and reused simulation for storeTick, gridTick,
+  // sweepTick, naiveEat, gridEat and sweepEat, which reset the simulation
+  // from the template on every call
+  FishStore template;
+  FishSim sim;
+  // the reused frame and bitmap renderer for drawScene and drawBitmap
+  OffscreenCanvas canvas;
+  BitmapRenderer renderer;
+  // a private copy of the enemies for inPlaceTick, with their starting
+  // positions and, for a ConsList, its nodes, so that each call can put them
+  // back without allocating
+  Object[] fish;
+  int[] xs;
+  int[] ys;
+  IList<Fish> list;
+  java.util.ArrayList<ConsList<Fish>> cells;
+  IList<Fish> tail;
+
+  BenchOp(String name) {
+    this.name = name;
+  }
+
+  public Object apply(AGame game) {
+    IList<Fish> enemies = game.enemies;
+    if (this.name.equals("map")) {
+      return enemies.map(new MoveAll(game.world));
+    }
+    else if (this.name.equals("filter")) {
+      return enemies.filter(new RemoveOffScreen(game.world));
+    }
+    else if (this.name.equals("filteracc")) {
+      return enemies.filteracc(new IsNotEatenBy(), game.player);
+    }
+    else if (this.name.equals("ormapacc")) {
+      return enemies.ormapacc(new IsEatenBy(), game.player);
+    }
+    else if (this.name.equals("foldr")) {
+      return enemies.foldr(new SumLevels(), 0);
+    }
+    else if (this.name.equals("foldl")) {
+      return enemies.foldl(new SumLevels(), 0);
+    }
+    else if (this.name.equals("sort")) {
+      return enemies.sort(new ByLevel());
+    }
+    else if (this.name.equals("append")) {
+      return enemies.append(enemies);
+    }
+    else if (this.name.equals("onTick")) {
+      return game.onTick();
+    }
+    else if (this.name.equals("inPlaceTick")) {
+      return this.resetInPlace(game).onTick();
+    }
+    else if (this.name.equals("parallelTick")) {
+      return game.withPool(java.util.concurrent.ForkJoinPool.commonPool()).onTick();
+    }
+    else if (this.name.equals("makeScene")) {
+      return game.makeScene();
+    }
+    else if (this.name.equals("drawScene") || this.name.equals("drawBitmap")) {
+      if (this.canvas == null) {
+        this.canvas = new OffscreenCanvas(1000, 1000);
+        this.renderer = new BitmapRenderer();
+      }
+      if (this.name.equals("drawBitmap")) {
+        return this.canvas.draw(game.withRenderer(this.renderer).makeScene());
+      }
+      else {
+        return this.canvas.draw(game.makeScene());
+      }
+    }
+    else if (this.name.equals("storeTick") || this.name.equals("gridTick")
+        || this.name.equals("sweepTick") || this.name.equals("naiveEat")
+        || this.name.equals("gridEat") || this.name.equals("sweepEat")) {
+      if (this.template == null) {
+        this.template = new FishStore(game.enemies);
+        IBroadPhase broadPhase = null;
+        if (this.name.equals("gridTick") || this.name.equals("gridEat")) {
+          broadPhase = new FishGrid(game.world);
+        }
+        else if (this.name.equals("sweepTick") || this.name.equals("sweepEat")) {
+          broadPhase = this.rankLastTick(this.template);
+        }
+        this.sim = new FishSim(game.player, new FishStore(this.template.size), game.rand,
+            broadPhase, null, game.world);
+      }
+      this.sim.player = game.player;
+      this.sim.enemies.copyFrom(this.template);
+      if (this.name.equals("naiveEat") || this.name.equals("gridEat")
+          || this.name.equals("sweepEat")) {
+        if (this.sim.broadPhase != null) {
+          this.sim.broadPhase.build(this.sim.enemies);
+        }
+        return this.sim.enemies.eatEachOther(this.sim.broadPhase);
+      }
+      this.sim.onTick();
+      return this.sim;
+    }
+    else {
+      throw new IllegalArgumentException("Unknown benchmark: " + this.name);
+    }
+  }
+
+  // returns a SweepAndPrune whose last build saw the fish of the given store
+  // where they were a tick earlier, leaving their ranks in the store, so that
+  // each build from a copy of it reorders them as in a running game
+  SweepAndPrune rankLastTick(FishStore template) {
+    FishStore earlier = new FishStore(template.size);
+    earlier.copyFrom(template);
+    for (int i = 0; i < earlier.size; i = i + 1) {
+      earlier.x[i] = earlier.x[i] - earlier.vx[i];
+    }
+    SweepAndPrune sweep = new SweepAndPrune();
+    sweep.build(earlier);
+    System.arraycopy(earlier.rank, 0, template.rank, 0, template.size);
+    return sweep;
+  }
+
+  // returns a game that moves a copy of the given game's enemies in place,
+  // with the copy put back as it started
+  AGame resetInPlace(AGame game) {
+    if (this.fish == null) {
+      this.fish = game.enemies.toArray();
+      this.xs = new int[this.fish.length];
+      this.ys = new int[this.fish.length];
+      for (int i = 0; i < this.fish.length; i = i + 1) {
+        Fish f = (Fish) this.fish[i];
+        this.xs[i] = f.coordinates.x;
+        this.ys[i] = f.coordinates.y;
+        this.fish[i] = new Fish(new APosn(f.coordinates.x, f.coordinates.y), f.velocity,
+            f.level, f.experience, f.score, f.facing, f.color);
+      }
+      this.list = game.enemies.rebuild(this.fish.clone(), this.fish.length);
+      this.cells = new java.util.ArrayList<ConsList<Fish>>();
+      IList<Fish> cur = this.list;
+      for (; !cur.isEmpty(); cur = cur.getRest()) {
+        if (cur instanceof ConsList) {
+          this.cells.add((ConsList<Fish>) cur);
+        }
+      }
+      this.tail = cur;
+    }
+    for (int i = 0; i < this.fish.length; i = i + 1) {
+      Fish f = (Fish) this.fish[i];
+      f.coordinates.x = this.xs[i];
+      f.coordinates.y = this.ys[i];
+    }
+    if (this.list instanceof ArrList) {
+      System.arraycopy(this.fish, 0, ((ArrList<Fish>) this.list).items, 0, this.fish.length);
+    }
+    else {
+      for (int i = 0; i < this.cells.size(); i = i + 1) {
+        ConsList<Fish> cell = this.cells.get(i);
+        cell.first = (Fish) this.fish[i];
+        if (i + 1 < this.cells.size()) {
+          cell.rest = this.cells.get(i + 1);
+        }
+        else {
+          cell.rest = this.tail;
+        }
+      }
+    }
+    return game.make(game.player, this.list, game.rand, null, null, null, true, game.world);
+  }
+}
+
+// to measure how the list combinators and a full tick scale with the number
+// of enemies
+class GameBenchmarks {
+  static final String[] OPS = { "map", "filter", "filteracc", "ormapacc", "foldr", "foldl",
+      "sort", "append", "onTick", "inPlaceTick", "parallelTick", "storeTick", "gridTick",
+      "sweepTick", "naiveEat", "gridEat", "sweepEat", "makeScene", "drawScene",
+      "drawBitmap" };
+  static final int[] SIZES = { 10, 100, 1000, 10000, 100000 };
+
+  long budgetNanos;
+  boolean arrays;
+  // the kind of game to measure
+  AGame kind;
+  int sink;
+  // the bytes allocated per call in the last measurement
+  double bytesPerOp;
+
+  GameBenchmarks(long budgetNanos, boolean arrays, AGame kind) {
+    this.budgetNanos = budgetNanos;
+    this.arrays = arrays;
+    this.kind = kind;
+  }
+
+  // measures the game named by the game system property
+  GameBenchmarks(long budgetNanos, boolean arrays) {
+    this(budgetNanos, arrays, AGame.fromProperty());
+  }
+
+  // returns a game with n enemies spread over the world of the kind of game
+  // measured, seeded for repeatable runs
+  AGame gameWithEnemies(int n, long seed) {
+    WorldConfig world = this.kind.world;
+    Random rand = new Random(seed);
+    IList<Fish> enemies = new MtList<Fish>();
+    for (int i = 0; i < n; i = i + 1) {
+      int level = rand.nextInt(5) + 1;
+      int dir = rand.nextInt(2) == 1 ? 1 : -1;
+      enemies = new ConsList<Fish>(
+          new Fish(new APosn(rand.nextInt(world.width), rand.nextInt(world.height)),
+              new APosn(dir * 60 / level, 0), level, level * 10, 0, dir == 1 ? "right" : "left",
+              Color.BLACK),
+          enemies);
+    }
+    if (this.arrays) {
+      enemies = new ArrList<Fish>(enemies);
+    }
+    return this.kind.make(new Fish(new APosn(world.width / 2, world.height / 2),
+        new APosn(0, 0), 1, 0, 0, "left", Color.BLACK), enemies, rand, null, null, null, false,
+        world);
+  }
+
+  // returns the average nanoseconds per call of op on game, warming up for
+  // half the budget and measuring for the other half
+  double measure(IFunc<AGame, Object> op, AGame game) {
+    this.runFor(op, game, this.budgetNanos / 2);
+    long allocated = GameMetrics.allocatedBytes();
+    long start = System.nanoTime();
+    long calls = this.runFor(op, game, this.budgetNanos / 2);
+    long nanos = System.nanoTime() - start;
+    this.bytesPerOp = (GameMetrics.allocatedBytes() - allocated) / (double) calls;
+    return nanos / (double) calls;
+  }
+
+  // calls op on game repeatedly for at least the given time, returning the
+  // number of calls made
+  long runFor(IFunc<AGame, Object> op, AGame game, long nanos) {
+    long end = System.nanoTime() + nanos;
+    long calls = 0;
+    do {
+      this.sink = this.sink ^ System.identityHashCode(op.apply(game));
+      calls = calls + 1;
+    } while (System.nanoTime() < end);
+    return calls;
+  }
+
+  // returns one report line for op at the given size
+  String report(String op, int size) {
+    String result;
+    try {
+      double nanos = this.measure(new BenchOp(op), this.gameWithEnemies(size, size));
+      result = String.format("%14.1f ns/op %12.0f B/op", nanos, this.bytesPerOp);
+    }
+    catch (StackOverflowError e) {
+      result = "StackOverflowError";
+    }
+    return String.format("%-12s %7d  %s", op, size, result);
+  }
+
+  // usage: GameBenchmarks [millisPerBenchmark [cons|array [op ...]]]
+  public static void main(String[] args) {
+    long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+    boolean arrays = args.length > 1 && args[1].equals("array");
+    String[] ops = OPS;
+    if (args.length > 2) {
+      ops = java.util.Arrays.copyOfRange(args, 2, args.length);
+    }
+    GameBenchmarks bench = new GameBenchmarks(millis * 1000000, arrays);
+    for (String op : ops) {
+      for (int size : SIZES) {
+        System.out.println(bench.report(op, size));
+      }
+    }
+  }
+}
+
@@ -5,700 +5,1078 @@ import java.awt.Color; // general colors (as triples of red,green,blue values)
 // and predefined colors (Red, Green, Yellow, Blue, Black, White)
 import java.util.Random;
 
-// Interface for predicate-objects with siganture [T -> Boolean]
-interface IPred<T> {
-  boolean apply(T t);
-}
-
-class RemoveOffScreen implements IPred<Fish> {
-  public boolean apply(Fish f) {
-    return !f.isOffscreen(1000, 1000, f);
-  }
-}
-
-// Interface for comparator-objects with siganture [T -> Boolean]
-interface IComparator<T> {
-  boolean apply(T t1, T t2);
-}
-
-class IsEatenBy implements IComparator<Fish> {
-  public boolean apply(Fish f1, Fish f2) {
-    return f1.fishCollision(f2) && f1.canFishEat(f2);
-  }
-}
-
-class IsNotEatenBy implements IComparator<Fish> {
-  public boolean apply(Fish f1, Fish f2) {
-    return !f2.fishCollision(f1);
-  }
-}
-
-class IsEaten implements IComparator<Fish> {
-  public boolean apply(Fish f1, Fish f2) {
-    return f1.fishCollision(f2);
-  }
-}
-
-// Interface for one-argument function-object with signature [A -> R]
-interface IFunc<A, R> {
-  R apply(A arg);
-}
-
-class MoveAll implements IFunc<Fish, Fish> {
-  public Fish apply(Fish f) {
-    return f.move();
-  }
-}
-
-// Interface for two-argument function-objects with signature [A1, A2 -> R]
-interface IFunc2<A1, A2, R> {
-  R apply(A1 arg1, A2 arg2);
-}
-
-class PlaceAll implements IFunc2<Fish, WorldScene, WorldScene> {
-  public WorldScene apply(Fish f, WorldScene ws) {
-    return f.place(ws);
-  }
-}
-
-class Utils {
-
-  // returns a list of identities that pass through a one argument function of
-  // length n
-  <U> IList<U> buildlist(int n, IFunc<Integer, U> func) {
-    if (n == 0) {
-      return new MtList<U>();
-    }
-    else {
-      return new ConsList<U>(func.apply(n), buildlist(n, func));
-    }
-  }
-
-  // returns a list of T of length n
-  <T> IList<T> makelist(int n, T t) {
-    if (n == 0) {
-      return new MtList<T>();
-    }
-    else {
-      return new ConsList<T>(t, makelist(n, t));
-    }
-  }
-
-}
-
-// represent a list
-interface IList<T> {
-
-  // returns the length of the given list of objects
-  int length();
-
-  // returns only the objects of a given list that pass a certain predicate
-  IList<T> filter(IPred<T> pred);
-
-  IList<T> filteracc(IComparator<T> comp, T t);
-
-  // return the list of objects rearranged according to the given comparator
-  IList<T> sort(IComparator<T> comp);
-
-  // return the list of objects with the new object arranged according to the
-  // given comparator
-  IList<T> insert(T t, IComparator<T> comp);
-
-  // returns the list of objects after it has passed through a one-argument
-  // function
-  <U> IList<U> map(IFunc<T, U> func);
-
-  // returns a boolean determining whether or not all objects in the list pass a
-  // certain predicate
-  boolean andmap(IPred<T> func);
-
-  // returns a boolean determining whether or not any objects in the list pass a
-  // certain predicate
-  boolean ormap(IPred<T> func);
-
-  boolean ormapacc(IComparator<T> comp, T t);
-
-  // returns the base value of a list of objects after it has passed through a
-  // two-argument function from right to left
-  <U> U foldr(IFunc2<T, U, U> func, U base);
-
-  // returns the base value of a list of objects after it has passed through a
-  // two argument function from left to right
-  <U> U foldl(IFunc2<T, U, U> func, U base);
-
-  // returns a list of objects containing the values of two list of objects
-  IList<T> append(IList<T> that);
-
-  // returns the nth object in the list, or null if no such object exists in said
-  // list
-  Object listref(int n);
-
-  // returns the nth tail of objects , or an empty list if no such tail exists in
-  // said list
-  IList<T> listtail(int n);
-
-  // returns the given list of objects in a reverse order
-  IList<T> reverse();
-
-  IList<T> swap(IList<T> that);
-
-  // returns a list of objects containing the result of two lists passing through
-  // a two argument function
-  <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> converter);
-
-  <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> converter);
-
-  T getFirst();
-
-}
-
-// represent a empty list
-class MtList<T> implements IList<T> {
-
-  // returns the length of the given list of objects
-  public int length() {
-    return 0;
-  }
-
-  // returns only the objects of a given list that pass a certain predicate
-  public IList<T> filter(IPred<T> pred) {
-    return this;
-  }
-
-  public IList<T> filteracc(IComparator<T> comp, T t) {
-    return this;
-  }
-
-  // return the list of objects rearranged according to the given comparator
-  public IList<T> sort(IComparator<T> comp) {
-    return this;
-  }
-
-  // return the list of objects with the new object arranged according to the
-  // given comparator
-  public IList<T> insert(T t, IComparator<T> comp) {
-    return new ConsList<T>(t, this);
-  }
-
-  // returns the list of objects after it has passed through a one-argument
-  // function
-  public <U> IList<U> map(IFunc<T, U> func) {
-    return new MtList<U>();
-  }
-
-  // returns a boolean determining whether or not all objects in the list pass a
-  // certain predicate
-  public boolean andmap(IPred<T> func) {
-    return true;
-  }
-
-  // returns a boolean determining whether or not any objects in the list pass a
-  // certain predicate
-  public boolean ormap(IPred<T> func) {
-    return false;
-  }
-
-  public boolean ormapacc(IComparator<T> comp, T t) {
-    return false;
-  }
-
-  // returns the base value of a list of objects after it has passed through a
-  // two-argument function from right to left
-  public <U> U foldr(IFunc2<T, U, U> func, U base) {
-    return base;
+// to represent a fishy game
+class FishGame extends AGame {
+  FishGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace,
+      WorldConfig world) {
+    super(player, enemies, rand, renderer, pool, listener, inPlace, world);
   }
 
-  // returns the base value of a list of objects after it has passed through a
-  // two-argument function from left to right
-  public <U> U foldl(IFunc2<T, U, U> func, U base) {
-    return base;
+  FishGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace) {
+    super(player, enemies, rand, renderer, pool, listener, inPlace);
   }
 
-  // returns a list of objects containing the values of two list of objects
-  public IList<T> append(IList<T> that) {
-    return that;
+  FishGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener) {
+    super(player, enemies, rand, renderer, pool, listener);
   }
 
-  // returns the nth object in the list, or null if no such object exists in said
-  // list
-  public Object listref(int n) {
-    return null;
+  FishGame(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool) {
+    super(player, enemies, rand, renderer, pool);
   }
 
-  // returns the nth tail of objects , or an empty list if no such tail exists in
-  // said list
-  public IList<T> listtail(int n) {
-    return this;
+  FishGame(Fish player, IList<Fish> enemies, Random rand) {
+    super(player, enemies, rand);
   }
 
-  // returns the given list of objects in a reverse order
-  public IList<T> reverse() {
-    return this;
+  FishGame(Fish player, IList<Fish> enemies) {
+    super(player, enemies);
   }
 
-  public IList<T> swap(IList<T> that) {
-    return that;
+  FishGame(Random rand, IList<Fish> noEnemies) {
+    super(rand, noEnemies);
   }
 
-  // returns a list of objects containing the result of two lists passing through
-  // a two argument function
-  public <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> func) {
-    return new MtList<R>();
+  FishGame(Random rand) {
+    super(rand);
   }
 
-  public <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> func) {
-    return new MtList<R>();
-
+  FishGame() {
+    super();
   }
 
-  public T getFirst() {
-    return null;
+  AGame make(Fish player, IList<Fish> enemies, Random rand, BitmapRenderer renderer,
+      java.util.concurrent.ForkJoinPool pool, GameListener listener, boolean inPlace,
+      WorldConfig world) {
+    return new FishGame(player, enemies, rand, renderer, pool, listener, inPlace, world);
   }
 }
 
-// represent a non-empty list
-class ConsList<T> implements IList<T> {
-  T first;
-  IList<T> rest;
-
-  ConsList(T first, IList<T> rest) {
-    this.first = first;
-    this.rest = rest;
-  }
-
-  // returns the length of the given list of objects
-  public int length() {
-    return 1 + this.rest.length();
+class AddOne implements IFunc<Integer, Integer> {
+  public Integer apply(Integer n) {
+    return n + 1;
   }
+}
 
-  // returns only the objects of a given list that pass a certain predicate
-  public IList<T> filter(IPred<T> pred) {
-    if (pred.apply(this.first)) {
-      return new ConsList<T>(this.first, this.rest.filter(pred));
-    }
-    else {
-      return this.rest.filter(pred);
-    }
-  }
-
-  public IList<T> filteracc(IComparator<T> comp, T t) {
-    if (comp.apply(t, this.first)) {
-      return new ConsList<T>(this.first, this.rest.filteracc(comp, t));
-    }
-    else {
-      return this.rest.filteracc(comp, t);
-    }
+class AtMostTwo implements IPred<Integer> {
+  public boolean apply(Integer i) {
+    return i <= 2;
   }
+}
 
-  // return the list of objects rearranged according to the given comparator
-  public IList<T> sort(IComparator<T> comp) {
-    return this.rest.sort(comp).insert(this.first, comp);
+class IsOne implements IPred<Integer> {
+  public boolean apply(Integer n) {
+    return n == 1;
   }
+}
 
-  // return the list of objects with the new object arranged according to the
-  // given comparator
-  public IList<T> insert(T t, IComparator<T> comp) {
-    if (comp.apply(this.first, t)) {
-      return new ConsList<T>(this.first, this.rest.insert(t, comp));
-    }
-    else {
-      return new ConsList<T>(t, this);
-    }
+class AtMost implements IComparator<Integer> {
+  public boolean apply(Integer n1, Integer n2) {
+    return n1 <= n2;
   }
+}
 
-  // returns the list of objects after it has passed through a one-argument
-  // function
-  public <U> IList<U> map(IFunc<T, U> func) {
-    return new ConsList<U>(func.apply(this.first), this.rest.map(func));
-  }
+// AtMost, counting the comparisons it makes
+class CountingAtMost implements IComparator<Integer> {
+  int count;
 
-  // returns a boolean determining whether or not all objects in the list pass a
-  // certain predicate
-  public boolean andmap(IPred<T> func) {
-    return func.apply(this.first) && this.rest.andmap(func);
+  public boolean apply(Integer n1, Integer n2) {
+    this.count = this.count + 1;
+    return n1 <= n2;
   }
+}
 
-  // returns a boolean determining whether or not all objects in the list pass a
-  // certain predicate
-  public boolean ormap(IPred<T> func) {
-    return func.apply(this.first) || this.rest.ormap(func);
+class Below implements IComparator<Integer> {
+  public boolean apply(Integer n1, Integer n2) {
+    return n1 < n2;
   }
+}
 
-  public boolean ormapacc(IComparator<T> comp, T t) {
-    return comp.apply(t, this.first) || this.rest.ormapacc(comp, t);
+class Sum implements IFunc2<Integer, Integer, Integer> {
+  public Integer apply(Integer n1, Integer n2) {
+    return n1 + n2;
   }
+}
 
-  // returns the base value of a list of objects after it has passed through a
-  // two-argument function from right to left
-  public <U> U foldr(IFunc2<T, U, U> func, U base) {
-    return func.apply(this.first, this.rest.foldr(func, base));
+class ConsOnto implements IFunc2<Integer, IList<Integer>, IList<Integer>> {
+  public IList<Integer> apply(Integer n, IList<Integer> list) {
+    return new ConsList<Integer>(n, list);
   }
+}
 
-  // returns the base value of a list of objects after it has passed through a
-  // two-argument function from left to right
-  public <U> U foldl(IFunc2<T, U, U> func, U base) {
-    return this.reverse().foldr(func, base);
-  }
+// compares fish by their fields, for checking long lists of fish without
+// comparing them field by field through the tester
+// conses its own number onto a shared list on its own thread
+class ConsOntoShared implements Runnable {
+  IList<Integer> shared;
+  int n;
+  IList<Integer> result;
 
-  // returns a list of objects containing the values of two list of objects
-  public IList<T> append(IList<T> that) {
-    return new ConsList<T>(this.first, this.rest.append(that));
+  ConsOntoShared(IList<Integer> shared, int n) {
+    this.shared = shared;
+    this.n = n;
   }
 
-  // returns the nth object in the list, or null if no such object exists in said
-  // list
-  public Object listref(int n) {
-    if (n == 1) {
-      return this.first;
-    }
-    else {
-      return this.rest.listref(n - 1);
+  public void run() {
+    for (int i = 0; i < 1000; i = i + 1) {
+      this.result = this.shared.cons(this.n);
     }
   }
+}
 
-  // returns the nth tail of objects , or an empty list if no such tail exists in
-  // said list
-  public IList<T> listtail(int n) {
-    if (n == 1) {
-      return this;
+class SameFish implements java.util.Comparator<Object> {
+  public int compare(Object o1, Object o2) {
+    Fish f1 = (Fish) o1;
+    Fish f2 = (Fish) o2;
+    if (f1.coordinates.equals(f2.coordinates) && f1.velocity.equals(f2.velocity)
+        && f1.level == f2.level && f1.experience == f2.experience && f1.score == f2.score
+        && f1.facing.equals(f2.facing) && f1.color.equals(f2.color)) {
+      return 0;
     }
     else {
-      return this.rest.listtail(n - 1);
+      return 1;
     }
   }
-
-  // returns the given list of objects in a reverse order
-  public IList<T> reverse() {
-    return this.rest.swap(new ConsList<T>(this.first, new MtList<T>()));
-  }
-
-  public IList<T> swap(IList<T> that) {
-    return this.rest.swap(new ConsList<T>(this.first, that));
-  }
-
-  // returns a list of objects containing the result of two lists passing through
-  // a two argument function
-  public <U, R> IList<R> convolve(IList<U> that, IFunc2<T, U, R> func) {
-    return that.convolveHelper(this.first, this.rest, func);
-  }
-
-  public <U, R> IList<R> convolveHelper(U thatFirst, IList<U> thatRest, IFunc2<U, T, R> func) {
-    return new ConsList<R>(func.apply(thatFirst, this.first), thatRest.convolve(this.rest, func));
-  }
-
-  public T getFirst() {
-    return this.first;
-  }
-
 }
 
-class APosn extends Posn {
-  APosn(int x, int y) {
-    super(x, y);
-  }
-
-  public APosn add(APosn that) {
-    return new APosn((this.x + that.x), (this.y + that.y));
-  }
+class YourWorld {
+  Random rand;
 
-  public boolean isOffscreen(int width, int height, Fish f) {
-    return this.x < (0 - (25 * f.level)) || this.x > (width + (25 * f.level));
+  // The constructor for use in "real" games
+  YourWorld() {
+    this(new Random());
   }
 
-  WorldScene placeImageOnScene(WorldScene ws, WorldImage wi) {
-    return ws.placeImageXY(wi, this.x, this.y);
+  // The constructor for use in testing, with a specified Random object
+  YourWorld(Random rand) {
+    this.rand = rand;
   }
 
 }
 
-// to represent a fish
-class Fish {
-
-  APosn coordinates, velocity;
-  int level, experience, score;
-  String facing;
-  Color color;
-
-  Fish(APosn coordinates, APosn velocity, int level, int experience, int score, String facing,
-      Color color) {
-    this.coordinates = coordinates;
-    this.velocity = velocity;
-    this.level = level;
-    this.experience = experience;
-    this.score = score;
-    this.facing = facing;
-    this.color = color;
-  }
-
-  boolean fishCollision(Fish that) {
-    return ((this.coordinates.x - (25 * this.level)) <= (that.coordinates.x + (25 * that.level)))
-        && ((this.coordinates.x + (25 * this.level)) >= (that.coordinates.x - (25 * that.level)))
-        && ((this.coordinates.y - (15 * this.level)) <= (that.coordinates.y + (15 * that.level)))
-        && ((this.coordinates.y + (15 * this.level)) >= (that.coordinates.y - (15 * that.level)));
-  }
+class ExamplesFish {
 
-  boolean canFishEat(Fish that) {
-    return this.level >= that.level;
-  }
+  FishGame game = new FishGame();
+  FishGame game2 = new FishGame(
+      new Fish((new APosn(500, 500)), (new APosn(0, 0)), 1, 0, 0, "left", Color.BLACK),
+      new MtList<Fish>());
 
-  Fish eatFish(Fish that) {
-    if (this.experience + that.experience >= this.level * 100) {
-      return new Fish(this.coordinates, this.velocity, this.level + 1,
-          (this.experience + that.experience) - (this.level * 100), this.score + that.experience,
-          this.facing, this.color);
-    }
-    else {
-      return new Fish(this.coordinates, this.velocity, this.level,
-          this.experience + that.experience, this.score + that.experience, this.facing, this.color);
-    }
+  boolean testGame(Tester t) {
+    return game2.bigBang(1000, 1000, 0.1);
   }
 
-  Fish movePlayer() {
-    if (this.coordinates.add(this.velocity).x >= 1000 + (this.level * 25)) {
-      return new Fish(new APosn(0 - (this.level * 25), this.coordinates.add(this.velocity).y),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
-    }
-    else if (this.coordinates.add(this.velocity).x <= 0 - (this.level * 25)) {
-      return new Fish(new APosn(1000 + (this.level * 25), this.coordinates.add(this.velocity).y),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
-    }
-    else if (this.coordinates.add(this.velocity).y >= 1000 - (this.level * 15)) {
-      return new Fish(new APosn(this.coordinates.add(this.velocity).x, 1000 - (this.level * 15)),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
-    }
-    else if (this.coordinates.add(this.velocity).y <= 0 + (this.level * 15)) {
-      return new Fish(new APosn(this.coordinates.add(this.velocity).x, 0 + (this.level * 15)),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
-    }
-    else {
-      return new Fish(this.coordinates.add(this.velocity), this.velocity, this.level,
-          this.experience, this.score, this.facing, this.color);
-    }
+  boolean testOnKeyEvent(Tester t) {
+    return t.checkExpect(game2.onKeyEvent("left"),
+        new FishGame(
+            new Fish((new APosn(500, 500)), (new APosn(-5, 0)), 1, 0, 0, "left", Color.BLACK),
+            new MtList<Fish>()));
   }
 
-  Fish move() {
-    if (this.coordinates.add(this.velocity).y >= 1000 - (this.level * 15)) {
-      return new Fish(new APosn(this.coordinates.add(this.velocity).x, 1000 - (this.level * 15)),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
+  boolean testIsOver(Tester t) {
+    return t.checkExpect(game2.isOver(), false)
+        && t.checkExpect(new FishGame(
+            new Fish((new APosn(500, 500)), (new APosn(0, 0)), 1, 0, 0, "left", Color.RED),
+            new MtList<Fish>()).isOver(), true)
+        && t.checkExpect(new FishGame(
+            new Fish((new APosn(500, 500)), (new APosn(0, 0)), 6, 0, 0, "left", Color.BLACK),
+            new MtList<Fish>()).isOver(), true);
+  }
+
+  IList<Integer> oneTwoThree = new ConsList<Integer>(1,
+      new ConsList<Integer>(2, new ConsList<Integer>(3, new MtList<Integer>())));
+
+  boolean testLongLists(Tester t) {
+    IList<Integer> ones = new Utils().makelist(1000000, 1);
+    return t.checkExpect(ones.length(), 1000000)
+        && t.checkExpect(ones.map(new AddOne()).foldr(new Sum(), 0), 2000000)
+        && t.checkExpect(ones.append(ones).filter(new IsOne()).length(), 2000000)
+        && t.checkExpect(ones.listref(1000000), 1);
+  }
+
+  boolean testBuildlist(Tester t) {
+    return t.checkExpect(new Utils().buildlist(3, new AddOne()), new ConsList<Integer>(4,
+        new ConsList<Integer>(3, new ConsList<Integer>(2, new MtList<Integer>()))))
+        && t.checkExpect(new Utils().buildlist(0, new AddOne()), new MtList<Integer>())
+        && t.checkExpect(new Utils().buildlist(1000000, new AddOne()).length(), 1000000);
+  }
+
+  boolean testListOps(Tester t) {
+    return t.checkExpect(oneTwoThree.reverse(), new ConsList<Integer>(3,
+        new ConsList<Integer>(2, new ConsList<Integer>(1, new MtList<Integer>()))))
+        && t.checkExpect(oneTwoThree.reverse().sort(new AtMost()), oneTwoThree)
+        && t.checkExpect(oneTwoThree.listref(2), 2)
+        && t.checkExpect(oneTwoThree.listref(4), null)
+        && t.checkExpect(oneTwoThree.listtail(3), new ConsList<Integer>(3, new MtList<Integer>()))
+        && t.checkExpect(oneTwoThree.convolve(oneTwoThree.listtail(2), new Sum()),
+            new ConsList<Integer>(3, new ConsList<Integer>(5, new MtList<Integer>())))
+        && t.checkExpect(oneTwoThree.filter(new IsOne()),
+            new ConsList<Integer>(1, new MtList<Integer>()));
+  }
+
+  IList<Integer> arrOneTwoThree = new ArrList<Integer>(oneTwoThree);
+
+  boolean testArrList(Tester t) {
+    return t.checkExpect(arrOneTwoThree.length(), 3)
+        && t.checkExpect(arrOneTwoThree.listref(3), 3)
+        && t.checkExpect(arrOneTwoThree.listref(0), null)
+        && t.checkExpect(arrOneTwoThree.listtail(2).foldr(new ConsOnto(), new MtList<Integer>()),
+            oneTwoThree.listtail(2))
+        && t.checkExpect(arrOneTwoThree.reverse().sort(new AtMost())
+            .foldr(new ConsOnto(), new MtList<Integer>()), oneTwoThree)
+        && t.checkExpect(arrOneTwoThree.cons(0).map(new AddOne())
+            .filter(new IsOne()).length(), 1)
+        && t.checkExpect(arrOneTwoThree.append(oneTwoThree).foldl(new Sum(), 0), 12)
+        && t.checkExpect(arrOneTwoThree.convolve(oneTwoThree.listtail(2), new Sum())
+            .foldr(new ConsOnto(), new MtList<Integer>()),
+            oneTwoThree.convolve(oneTwoThree.listtail(2), new Sum()));
+  }
+
+  // cons fills the room in front of the lowest slice, doubling the array when
+  // it runs out, and copies for any other list it is cons'd onto
+  boolean testArrListCons(Tester t) {
+    ArrList<Integer> grown = new ArrList<Integer>();
+    for (int i = 0; i < 1000; i = i + 1) {
+      grown = (ArrList<Integer>) grown.cons(i);
     }
-    else if (this.coordinates.add(this.velocity).y <= 0 + (this.level * 15)) {
-      return new Fish(new APosn(this.coordinates.add(this.velocity).x, 0 + (this.level * 15)),
-          this.velocity, this.level, this.experience, this.score, this.facing, this.color);
+    ArrList<Integer> base = (ArrList<Integer>) new ArrList<Integer>().cons(3);
+    IList<Integer> first = base.cons(1);
+    IList<Integer> second = base.cons(2);
+    IList<Integer> small = grown.listtail(999);
+    return t.checkExpect(grown.length(), 1000)
+        && t.checkExpect(grown.listref(1), 999)
+        && t.checkExpect(grown.listref(1000), 0)
+        && t.checkExpect(grown.items.length <= 2048, true)
+        && t.checkExpect(first.toArray(), new Object[] { 1, 3 })
+        && t.checkExpect(second.toArray(), new Object[] { 2, 3 })
+        && t.checkExpect(base.toArray(), new Object[] { 3 })
+        && t.checkExpect(grown.filter(new AtMostTwo()).toArray(), new Object[] { 2, 1, 0 })
+        && t.checkExpect(small.filter(new AtMostTwo()) == small, true);
+  }
+
+  // threads consing onto the same list each get their own object in front
+  boolean testArrListConsThreads(Tester t) throws InterruptedException {
+    IList<Integer> base = new ArrList<Integer>().cons(0);
+    ConsOntoShared[] conses = new ConsOntoShared[8];
+    Thread[] threads = new Thread[conses.length];
+    for (int i = 0; i < threads.length; i = i + 1) {
+      conses[i] = new ConsOntoShared(base, i + 1);
+      threads[i] = new Thread(conses[i]);
+      threads[i].start();
     }
-    else {
-      return new Fish(this.coordinates.add(this.velocity), this.velocity, this.level,
-          this.experience, this.score, this.facing, this.color);
+    boolean own = true;
+    for (int i = 0; i < threads.length; i = i + 1) {
+      threads[i].join();
+      own = own && conses[i].result.getFirst() == i + 1
+          && conses[i].result.getRest().getFirst() == 0;
     }
-  }
-
-  boolean isOffscreen(int width, int height, Fish f) {
-    return this.coordinates.isOffscreen(width, height, f);
-  }
-
-  WorldImage draw() {
-    WorldImage blackPixel = new RectangleImage(this.level * 10, this.level * 10, OutlineMode.SOLID,
-        this.color);
-    WorldImage whitePixel = new RectangleImage(this.level * 10, this.level * 10,
-        OutlineMode.OUTLINE, Color.WHITE);
-
-    WorldImage fishSides1 = new BesideImage(blackPixel, blackPixel, blackPixel, whitePixel,
-        blackPixel);
-    WorldImage fishMiddle1 = new BesideImage(blackPixel, whitePixel, blackPixel, blackPixel,
-        whitePixel);
-
-    WorldImage fish1 = new AboveImage(fishSides1, fishMiddle1, fishSides1);
-
-    WorldImage fishSides2 = new BesideImage(blackPixel, whitePixel, blackPixel, blackPixel,
-        blackPixel);
-    WorldImage fishMiddle2 = new BesideImage(whitePixel, blackPixel, blackPixel, whitePixel,
-        blackPixel);
-
-    WorldImage fish2 = new AboveImage(fishSides2, fishMiddle2, fishSides2);
-
-    if (this.facing == "left") {
-      return fish1;
+    return t.checkExpect(own, true)
+        && t.checkExpect(base.toArray(), new Object[] { 0 });
+  }
+
+  boolean testArrListGame(Tester t) {
+    HeadlessRunner runner = new HeadlessRunner(new ScriptedKeys("up,,left,,down,right"));
+    return t.checkExpect(runner.run(new FishGame(new Random(7), new ArrList<Fish>()), 300).player,
+        runner.run(new FishGame(new Random(7)), 300).player);
+  }
+
+  // returns a FishGame in the given world with n enemies spread over it,
+  // seeded for repeatable runs and kept in an ArrList if arrays is true; it
+  // reads no system property, so the examples run the same under any -Dgame
+  // or -Dworld
+  AGame gameWithEnemies(WorldConfig world, int n, long seed, boolean arrays) {
+    return new GameBenchmarks(0, arrays, new FishGame().withWorld(world))
+        .gameWithEnemies(n, seed);
+  }
+
+  // returns a FishGame in the standard world with n enemies spread over it
+  AGame gameWithEnemies(int n, long seed, boolean arrays) {
+    return this.gameWithEnemies(WorldConfig.STANDARD, n, seed, arrays);
+  }
+
+  boolean testFishStore(Tester t) {
+    AGame start = this.gameWithEnemies(50, 3, false);
+    FishStore store = new FishStore(start.enemies);
+    FishStore pair = new FishStore(new ConsList<Fish>(this.small,
+        new ConsList<Fish>(this.big, new MtList<Fish>())));
+    return t.checkExpect(store.size, 50)
+        && t.checkExpect(store.toList(), start.enemies)
+        && t.checkExpect(store.fishAt(49), start.enemies.getFirst())
+        && t.checkExpect(pair.size, 2)
+        && t.checkExpect(pair.x[0], 480)
+        && t.checkExpect(pair.y[0], 510)
+        && t.checkExpect(pair.level[0], 3)
+        && t.checkExpect(pair.experience[0], 30)
+        && t.checkExpect(pair.facing[0], FishStore.facingCode("right"))
+        && t.checkExpect(pair.x[1], 520)
+        && t.checkExpect(pair.facing[1], FishStore.facingCode("left"))
+        && t.checkExpect(pair.fishAt(1), this.small);
+  }
+
+  boolean testFishSim(Tester t) {
+    AGame game = this.gameWithEnemies(200, 11, false);
+    FishSim sim = new FishSim(game.player, new FishStore(game.enemies), new Random(5));
+    game = new FishGame(game.player, game.enemies, new Random(5));
+    for (int i = 0; i < 100 && !game.isOver(); i = i + 1) {
+      if (i % 7 == 0) {
+        game = (FishGame) game.onKeyEvent("down");
+        sim.onKeyEvent("down");
+      }
+      game = (FishGame) game.onTick();
+      sim.onTick();
     }
-    else {
-      return fish2;
+    return t.checkExpect(sim.toGame(this.game).player, game.player)
+        && t.checkExpect(sim.enemies.toList(), game.enemies);
+  }
+
+  boolean testFishGrid(Tester t) {
+    FishStore store = new FishStore(this.gameWithEnemies(2000, 17, false).enemies);
+    FishGrid grid = new FishGrid();
+    grid.build(store);
+    FishStore pond = new FishStore(new ConsList<Fish>(this.small,
+        new ConsList<Fish>(this.big, new ConsList<Fish>(this.far, new MtList<Fish>()))));
+    FishGrid pondGrid = new FishGrid();
+    pondGrid.build(pond);
+    int middle = pondGrid.row(500) * pondGrid.cols + pondGrid.col(520);
+    int corner = pondGrid.row(100) * pondGrid.cols + pondGrid.col(100);
+    boolean same = true;
+    for (int level = 1; level <= 6; level = level + 1) {
+      for (int x = -200; x <= 1200; x = x + 50) {
+        for (int y = 0; y <= 1000; y = y + 50) {
+          Fish f = new Fish(new APosn(x, y), new APosn(0, 0), level, 0, 0, "left", Color.BLACK);
+          same = same && grid.firstPrey(store, f) == store.firstPrey(f)
+              && grid.anyCollision(store, f) == store.anyCollision(f);
+        }
+      }
     }
-  }
-
-  WorldScene place(WorldScene scene) {
-    return this.coordinates.placeImageOnScene(scene, this.draw());
-  }
-
-  Fish moves(int x, int y, String face) {
-    if (face == "left") {
-      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
-          this.experience, this.score, "left", this.color);
+    return t.checkExpect(same, true)
+        && t.checkExpect(pondGrid.cols, 9)
+        && t.checkExpect(middle, pondGrid.row(510) * pondGrid.cols + pondGrid.col(480))
+        && t.checkExpect(pondGrid.head[middle], 2)
+        && t.checkExpect(pondGrid.next[2], 1)
+        && t.checkExpect(pondGrid.next[1], -1)
+        && t.checkExpect(pondGrid.head[corner], 0)
+        && t.checkExpect(pondGrid.next[0], -1)
+        && t.checkExpect(pondGrid.head[0], -1)
+        && t.checkExpect(pondGrid.maxLevel, 3)
+        && t.checkExpect(pondGrid.col(-1000), 0)
+        && t.checkExpect(pondGrid.row(5000), pondGrid.rows - 1);
+  }
+
+  boolean testGridSim(Tester t) {
+    AGame game = this.gameWithEnemies(300, 13, false);
+    FishSim sim = new FishSim(game.player, new FishStore(game.enemies), new Random(9),
+        new FishGrid());
+    game = new FishGame(game.player, game.enemies, new Random(9));
+    for (int i = 0; i < 100 && !game.isOver(); i = i + 1) {
+      game = (FishGame) game.onTick();
+      sim.onTick();
     }
-    else if (face == "right") {
-      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
-          this.experience, this.score, "right", this.color);
-    }
-    else {
-      return new Fish(this.coordinates, (new APosn(x / this.level, y / this.level)), this.level,
-          this.experience, this.score, this.facing, this.color);
+    return t.checkExpect(sim.toGame(this.game).player, game.player)
+        && t.checkExpect(sim.enemies.toList(), game.enemies);
+  }
+
+  boolean testWorldConfig(Tester t) {
+    WorldConfig large = new WorldConfig(10000, 10000, 0.05);
+    AGame game = this.gameWithEnemies(large, 3000, 23, false);
+    FishSim sim = new FishSim(game.player, new FishStore(game.enemies), new Random(4),
+        new FishGrid(large), null, large);
+    game = new FishGame(game.player, game.enemies, new Random(4)).withWorld(large);
+    for (int i = 0; i < 100 && !game.isOver(); i = i + 1) {
+      game = (AGame) game.onTick();
+      sim.onTick();
     }
-  }
-
-}
-
-// to represent a fishy game
-class FishGame extends World {
-
-  Fish player;
-  IList<Fish> enemies;
-  Random rand;
-
-  FishGame(Fish player, IList<Fish> enemies, Random rand) {
-    this.player = player;
-    this.enemies = enemies;
-    this.rand = rand;
-  }
-
-  FishGame(Fish player, IList<Fish> enemies) {
-    this.player = player;
-    this.enemies = enemies;
-    this.rand = new Random();
-  }
-
-  FishGame() {
-    this(new Fish((new APosn(500, 500)), (new APosn(0, 0)), 1, 0, 0, "left", Color.BLACK),
-        new MtList<Fish>(), new Random());
-  }
-
-  public boolean canBeEaten() {
-    return this.enemies.ormapacc(new IsEatenBy(), this.player);
-  }
-
-  public Fish eatOrEaten() {
-    if (this.canBeEaten()) {
-      return this.player.eatFish(enemies.filteracc(new IsEatenBy(), this.player).getFirst());
+    Fish atEdge = new Fish(new APosn(9990, 9990), new APosn(30, 30), 1, 0, 0, "right",
+        Color.BLACK);
+    IList<Fish> spawned = new FishGame(new Random(2)).withWorld(large).restart(new Random(2))
+        .addEnemy();
+    return t.checkExpect(game.world, large)
+        && t.checkExpect(sim.toGame(this.game).player, game.player)
+        && t.checkExpect(sim.enemies.toList(), game.enemies)
+        && t.checkExpect(new FishGame().restart(new Random(1)).player, this.game.player)
+        && t.checkExpect(new FishGame().withWorld(large).restart(new Random(1)).player
+            .coordinates, new APosn(5000, 5000))
+        && t.checkExpect(atEdge.movePlayer(large).coordinates, new APosn(10020, 9985))
+        && t.checkExpect(atEdge.movePlayer(WorldConfig.STANDARD).coordinates,
+            new APosn(-25, 10020))
+        && t.checkExpect(atEdge.move(large).coordinates, new APosn(10020, 9985))
+        && t.checkExpect(new RemoveOffScreen(large).apply(this.far), true)
+        && t.checkExpect(new RemoveOffScreen(WorldConfig.STANDARD).apply(atEdge), false)
+        && t.checkExpect(spawned.getFirst().coordinates.y < 10000, true)
+        && t.checkExpect(Math.abs(spawned.getFirst().coordinates.x - 5000) > 5000, true)
+        && t.checkExpect(large.spawnRolls(), 10)
+        && t.checkExpect(large.ticksPerSecond(), 20.0)
+        && t.checkExpect(WorldConfig.STANDARD.spawnRolls(), 1)
+        && t.checkConstructorException(
+            new IllegalArgumentException("A world must have a positive width and height"),
+            "WorldConfig", 0, 1000, 0.1)
+        && t.checkConstructorException(
+            new IllegalArgumentException("A world must have a positive tick rate"),
+            "WorldConfig", 1000, 1000, 0.0);
+  }
+
+  boolean testMergeSort(Tester t) {
+    Fish twoA = new Fish(new APosn(1, 0), new APosn(0, 0), 2, 0, 0, "left", Color.BLACK);
+    Fish oneA = new Fish(new APosn(2, 0), new APosn(0, 0), 1, 0, 0, "left", Color.BLACK);
+    Fish twoB = new Fish(new APosn(3, 0), new APosn(0, 0), 2, 0, 0, "left", Color.BLACK);
+    Fish oneB = new Fish(new APosn(4, 0), new APosn(0, 0), 1, 0, 0, "left", Color.BLACK);
+    IList<Fish> pond = new ConsList<Fish>(twoA, new ConsList<Fish>(oneA,
+        new ConsList<Fish>(twoB, new ConsList<Fish>(oneB, new MtList<Fish>()))));
+    IList<Fish> byLevel = new ConsList<Fish>(oneA, new ConsList<Fish>(oneB,
+        new ConsList<Fish>(twoA, new ConsList<Fish>(twoB, new MtList<Fish>()))));
+    IList<Integer> falling = new MtList<Integer>();
+    IList<Integer> rising = new MtList<Integer>();
+    for (int i = 0; i < 100000; i = i + 1) {
+      falling = new ConsList<Integer>(i, falling);
+      rising = new ConsList<Integer>(99999 - i, rising);
     }
-    else if (this.enemies.ormapacc(new IsEaten(), this.player)) {
-      return new Fish(this.player.coordinates, this.player.velocity, this.player.level,
-          this.player.experience, this.player.score, this.player.facing, Color.RED);
+    Object[] nearly = rising.toArray();
+    for (int i = 0; i < 10; i = i + 1) {
+      Object swap = nearly[i * 9000];
+      nearly[i * 9000] = nearly[i * 9000 + 1];
+      nearly[i * 9000 + 1] = swap;
     }
-    else {
-      return this.player;
+    CountingAtMost counting = new CountingAtMost();
+    IList<Integer> resorted = new ArrList<Integer>(nearly, 0, nearly.length).sort(counting);
+    return t.checkExpect(pond.sort(new ByLevel()), byLevel)
+        && t.checkExpect(new ArrList<Fish>(pond).sort(new ByLevel()).toArray(),
+            byLevel.toArray())
+        && t.checkExpect(new ArrList<Fish>(pond).reverse().sort(new ByLevel()).toArray(),
+            new Object[] { oneB, oneA, twoB, twoA })
+        && t.checkExpect(falling.sort(new AtMost()).toArray(), rising.toArray())
+        && t.checkExpect(new ArrList<Integer>(falling).sort(new Below()).toArray(),
+            rising.toArray())
+        && t.checkExpect(resorted.toArray(), rising.toArray())
+        && t.checkExpect(counting.count < 3 * 100000, true)
+        && t.checkExpect(new MtList<Integer>().sort(new AtMost()), new MtList<Integer>());
+  }
+
+  // three fish in a row, where the first passes the second as they move: the
+  // rebuild keeps the third in place and repairs the order with one shift
+  boolean testSweepAndPruneSwap(Tester t) {
+    Fish passing = new Fish(new APosn(100, 500), new APosn(60, 0), 1, 10, 0, "right",
+        Color.BLACK);
+    Fish still = new Fish(new APosn(130, 500), new APosn(0, 0), 1, 10, 0, "left", Color.BLACK);
+    Fish last = new Fish(new APosn(300, 500), new APosn(-100, 0), 1, 10, 0, "left",
+        Color.BLACK);
+    FishStore row = new FishStore(new ConsList<Fish>(passing,
+        new ConsList<Fish>(still, new ConsList<Fish>(last, new MtList<Fish>()))));
+    SweepAndPrune sweep = new SweepAndPrune();
+    sweep.build(row);
+    int[] before = java.util.Arrays.copyOf(sweep.order, 3);
+    int[] leftBefore = java.util.Arrays.copyOf(sweep.left, 3);
+    row.moveAll(WorldConfig.STANDARD);
+    sweep.build(row);
+    return t.checkExpect(before, new int[] { 2, 1, 0 })
+        && t.checkExpect(leftBefore, new int[] { 75, 105, 275 })
+        && t.checkExpect(java.util.Arrays.copyOf(sweep.order, 3), new int[] { 1, 2, 0 })
+        && t.checkExpect(java.util.Arrays.copyOf(sweep.left, 3), new int[] { 105, 135, 175 })
+        && t.checkExpect(sweep.shifts, 1L)
+        && t.checkExpect(sweep.sortedAll, false)
+        && t.checkExpect(row.rank[1], 0)
+        && t.checkExpect(row.rank[2], 1)
+        && t.checkExpect(row.rank[0], 2);
+  }
+
+  boolean testSweepAndPrune(Tester t) {
+    AGame game = this.gameWithEnemies(2000, 31, false);
+    FishStore store = new FishStore(game.enemies);
+    SweepAndPrune sweep = new SweepAndPrune();
+    sweep.build(store);
+    boolean same = true;
+    for (int level = 1; level <= 6; level = level + 1) {
+      for (int x = -200; x <= 1200; x = x + 50) {
+        for (int y = 0; y <= 1000; y = y + 50) {
+          Fish f = new Fish(new APosn(x, y), new APosn(0, 0), level, 0, 0, "left", Color.BLACK);
+          same = same && sweep.firstPrey(store, f) == store.firstPrey(f)
+              && sweep.anyCollision(store, f) == store.anyCollision(f);
+        }
+      }
     }
-  }
-
-  public IList<Fish> eatenOrEat() {
-    if (this.canBeEaten()) {
-      return new FishGame(
-          this.player,
-          this.enemies.filteracc(new IsNotEatenBy(), this.player)).spawnEnemy();
+    boolean sorted = true;
+    for (int k = 1; k < sweep.count; k = k + 1) {
+      sorted = sorted && sweep.left[k - 1] <= sweep.left[k];
     }
-    else {
-      return this.spawnEnemy();
+    FishStore few = new FishStore(this.gameWithEnemies(200, 37, false).enemies);
+    SweepAndPrune fewSweep = new SweepAndPrune();
+    fewSweep.build(few);
+    boolean firstSortedAll = fewSweep.sortedAll;
+    few.moveAll(WorldConfig.STANDARD);
+    fewSweep.build(few);
+    store.moveAll(WorldConfig.STANDARD);
+    sweep.build(store);
+    FishStore naive = new FishStore(store.size);
+    naive.copyFrom(store);
+    int eatenNaive = naive.eatEachOther(null);
+    FishSim plain = new FishSim(game.player, new FishStore(game.enemies), new Random(8));
+    FishSim swept = new FishSim(game.player, new FishStore(game.enemies), new Random(8),
+        new SweepAndPrune());
+    plain.ecosystem = true;
+    swept.ecosystem = true;
+    for (int i = 0; i < 100 && !plain.isOver(); i = i + 1) {
+      plain.onTick();
+      swept.onTick();
     }
-  }
-
-  public IList<Fish> spawnEnemy() {
-    if (this.rand.nextInt(10) == 1) {
-      return this.addEnemy();
+    return t.checkExpect(same, true)
+        && t.checkExpect(sorted, true)
+        && t.checkExpect(sweep.count, 2000)
+        && t.checkExpect(firstSortedAll, true)
+        && t.checkExpect(fewSweep.sortedAll, false)
+        && t.checkExpect(fewSweep.shifts > 0 && fewSweep.shifts < 200 * 8, true)
+        && t.checkExpect(sweep.sortedAll, true)
+        && t.checkExpect(store.eatEachOther(sweep), eatenNaive)
+        && t.checkExpect(store.toList(), naive.toList())
+        && t.checkExpect(swept.enemies.toList(), plain.enemies.toList())
+        && t.checkExpect(swept.player, plain.player);
+  }
+
+  boolean testEatEachOther(Tester t) {
+    FishStore pond = new FishStore(new ConsList<Fish>(this.small,
+        new ConsList<Fish>(this.big, new ConsList<Fish>(this.far, new MtList<Fish>()))));
+    int eatenInPond = pond.eatEachOther(null);
+    FishStore smallFirst = new FishStore(new ConsList<Fish>(this.big,
+        new ConsList<Fish>(this.small, new ConsList<Fish>(this.far, new MtList<Fish>()))));
+    int eatenSmallFirst = smallFirst.eatEachOther(null);
+    Fish twin = new Fish(new APosn(505, 500), new APosn(0, 0), 1, 10, 0, "right", Color.BLACK);
+    FishStore twins = new FishStore(new ConsList<Fish>(twin,
+        new ConsList<Fish>(this.small, new MtList<Fish>())));
+    int eatenTwins = twins.eatEachOther(null);
+    AGame game = this.gameWithEnemies(2000, 29, false);
+    FishStore naive = new FishStore(game.enemies);
+    FishStore gridded = new FishStore(game.enemies);
+    FishGrid grid = new FishGrid();
+    grid.build(gridded);
+    int eatenNaive = naive.eatEachOther(null);
+    int eatenGrid = gridded.eatEachOther(grid);
+    FishSim plain = new FishSim(game.player, new FishStore(game.enemies), new Random(6));
+    FishSim broad = new FishSim(game.player, new FishStore(game.enemies), new Random(6),
+        new FishGrid());
+    plain.ecosystem = true;
+    broad.ecosystem = true;
+    for (int i = 0; i < 50; i = i + 1) {
+      plain.onTick();
+      broad.onTick();
     }
-    else {
-      return this.enemies;
+    return t.checkExpect(eatenInPond, 1)
+        && t.checkExpect(pond.toList(), new ConsList<Fish>(
+            new Fish(new APosn(480, 510), new APosn(0, 0), 3, 40, 10, "right", Color.BLACK),
+            new ConsList<Fish>(this.far, new MtList<Fish>())))
+        && t.checkExpect(eatenSmallFirst, 1)
+        && t.checkExpect(smallFirst.toList(), pond.toList())
+        && t.checkExpect(eatenTwins, 1)
+        && t.checkExpect(twins.size, 1)
+        && t.checkExpect(twins.fishAt(0).coordinates, this.small.coordinates)
+        && t.checkExpect(twins.fishAt(0).experience, 20)
+        && t.checkExpect(eatenNaive > 0, true)
+        && t.checkExpect(eatenGrid, eatenNaive)
+        && t.checkExpect(gridded.toList(), naive.toList())
+        && t.checkExpect(naive.size, 2000 - eatenNaive)
+        && t.checkExpect(broad.enemies.toList(), plain.enemies.toList())
+        && t.checkExpect(broad.player, plain.player);
+  }
+
+  Fish small = new Fish(new APosn(520, 500), new APosn(0, 0), 1, 10, 0, "left", Color.BLACK);
+  Fish big = new Fish(new APosn(480, 510), new APosn(0, 0), 3, 30, 0, "right", Color.BLACK);
+  Fish far = new Fish(new APosn(100, 100), new APosn(0, 0), 1, 10, 0, "left", Color.BLACK);
+  Fish levelTwo = new Fish(new APosn(500, 500), new APosn(0, 0), 2, 0, 0, "left", Color.BLACK);
+
+  boolean testResolveCollisions(Tester t) {
+    AGame eats = new FishGame(levelTwo, new ConsList<Fish>(far,
+        new ConsList<Fish>(big, new ConsList<Fish>(small, new MtList<Fish>()))));
+    AGame eaten = new FishGame(levelTwo,
+        new ConsList<Fish>(far, new ConsList<Fish>(big, new MtList<Fish>())));
+    CollisionResult eatsResult = eats.resolveCollisions();
+    CollisionResult eatenResult = eaten.resolveCollisions();
+    return t.checkExpect(eatsResult.prey, small)
+        && t.checkExpect(eatsResult.collided, true)
+        && t.checkExpect(eatsResult.survivors, new ConsList<Fish>(far, new MtList<Fish>()))
+        && t.checkExpect(eatsResult.playerAfter(levelTwo), levelTwo.eatFish(small))
+        && t.checkExpect(eatenResult.prey, null)
+        && t.checkExpect(eatenResult.survivors, eaten.enemies)
+        && t.checkExpect(eatenResult.playerAfter(levelTwo).color, Color.RED)
+        && t.checkExpect(new FishGame(levelTwo, new ConsList<Fish>(far, new MtList<Fish>()))
+            .resolveCollisions().playerAfter(levelTwo), levelTwo);
+  }
+
+  boolean testFishSprites(Tester t) {
+    return t.checkExpect(small.draw() == far.draw(), true)
+        && t.checkExpect(small.draw() == big.draw(), false)
+        && t.checkExpect(small.draw(), FishSprites.build(1, Color.BLACK, true))
+        && t.checkExpect(big.draw(), FishSprites.build(3, Color.BLACK, false));
+  }
+
+  boolean testBitmapRenderer(Tester t) {
+    AGame scene = new FishGame(levelTwo, new ConsList<Fish>(far,
+        new ConsList<Fish>(big, new ConsList<Fish>(small, new MtList<Fish>()))));
+    int[] placed = new OffscreenCanvas(1000, 1000).draw(scene.makeScene())
+        .getRGB(0, 0, 1000, 1000, null, 0, 1000);
+    int[] blitted = new OffscreenCanvas(1000, 1000)
+        .draw(scene.withRenderer(new BitmapRenderer()).makeScene())
+        .getRGB(0, 0, 1000, 1000, null, 0, 1000);
+    return t.checkExpect(java.util.Arrays.equals(placed, blitted), true);
+  }
+
+  boolean testIsVisible(Tester t) {
+    return t.checkExpect(small.isVisible(1000, 1000), true)
+        && t.checkExpect(new Fish(new APosn(-26, 500), new APosn(0, 0), 1, 0, 0, "left",
+            Color.BLACK).isVisible(1000, 1000), false)
+        && t.checkExpect(new Fish(new APosn(-25, 500), new APosn(0, 0), 1, 0, 0, "left",
+            Color.BLACK).isVisible(1000, 1000), true)
+        && t.checkExpect(new Fish(new APosn(1125, 500), new APosn(0, 0), 5, 0, 0, "left",
+            Color.BLACK).isVisible(1000, 1000), true)
+        && t.checkExpect(new Fish(new APosn(500, 1016), new APosn(0, 0), 1, 0, 0, "left",
+            Color.BLACK).isVisible(1000, 1000), false);
+  }
+
+  boolean testDirtyTiles(Tester t) {
+    AGame game = this.gameWithEnemies(40, 21, false);
+    BitmapRenderer renderer = new BitmapRenderer();
+    OffscreenCanvas placed = new OffscreenCanvas(1000, 1000);
+    OffscreenCanvas blitted = new OffscreenCanvas(1000, 1000);
+    boolean same = true;
+    for (int i = 0; i < 15; i = i + 1) {
+      same = same && java.util.Arrays.equals(
+          placed.draw(game.makeScene()).getRGB(0, 0, 1000, 1000, null, 0, 1000),
+          blitted.draw(game.withRenderer(renderer).makeScene())
+              .getRGB(0, 0, 1000, 1000, null, 0, 1000));
+      game = (FishGame) game.onTick();
     }
-  }
-
-  public IList<Fish> addEnemy() {
-    int randomFish = this.rand.nextInt(5) + 1;
-    if (this.rand.nextInt(2) == 1) {
-      return new ConsList<Fish>(
-          new Fish((new APosn(1000 + (25 * randomFish), this.rand.nextInt(1000))),
-              (new APosn(-60 / randomFish, 0)), randomFish, randomFish * 10, 0, "left",
-              Color.BLACK),
-          this.enemies);
+    game.withRenderer(renderer).makeScene();
+    game.withRenderer(renderer).makeScene();
+    int still = renderer.dirtyTiles;
+    ((AGame) game.onTick()).withRenderer(renderer).makeScene();
+    return t.checkExpect(same, true)
+        && t.checkExpect(still, 0)
+        && t.checkExpect(renderer.dirtyTiles > 0, true)
+        && t.checkExpect(renderer.dirtyTiles < renderer.tilesX * renderer.tilesY, true);
+  }
+
+  boolean testInterpolate(Tester t) {
+    Fish moving = new Fish(new APosn(100, 200), new APosn(-12, 6), 5, 50, 0, "left", Color.BLACK);
+    Fish wrapped = new Fish(new APosn(1100, 200), new APosn(-12, 6), 5, 50, 0, "left",
+        Color.BLACK);
+    WorldConfig world = new WorldConfig(1000, 1000, 0.1);
+    return t.checkExpect(new Interpolate(0.5, world).apply(moving),
+        new Fish(new APosn(94, 203), new APosn(-12, 6), 5, 50, 0, "left", Color.BLACK))
+        && t.checkExpect(new Interpolate(0, world).apply(moving), moving)
+        && t.checkExpect(new Interpolate(1, world).apply(moving), moving.move(world))
+        && t.checkExpect(new Interpolate(0.5, world).between(moving, wrapped), wrapped);
+  }
+
+  // a frame is drawn between the two states of its snapshot, by a game that
+  // tells no listener
+  boolean testSnapshotBetween(Tester t) {
+    AGame before = new FishGame(new Random(3)).withListener(new GameMetrics());
+    AGame after = (AGame) before.onKeyEvent("left").onTick();
+    GameSnapshot snapshot = new GameSnapshot(before, after, 1, 0);
+    return t.checkExpect(snapshot.between(0).player.coordinates, before.player.coordinates)
+        && t.checkExpect(snapshot.between(1).player.coordinates, after.player.coordinates)
+        && t.checkExpect(snapshot.between(0.5).listener, null)
+        && t.checkExpect(before.listener == null, false);
+  }
+
+  // a loop that wakes up far behind runs at most MAX_CATCH_UP ticks back to
+  // back
+  boolean testCatchUp(Tester t) {
+    SimulationLoop loop = new SimulationLoop(new FishGame(new Random(3)), 1000);
+    long period = loop.period();
+    return t.checkExpect(loop.catchUp(0, 2 * period), 0L)
+        && t.checkExpect(loop.catchUp(0, 100 * period),
+            (100 - SimulationLoop.MAX_CATCH_UP + 1) * period);
+  }
+
+  boolean testSimulationLoop(Tester t) {
+    SimulationLoop loop = new SimulationLoop(new FishGame(new Random(3)), 1000);
+    loop.press("left");
+    loop.start();
+    long deadline = System.nanoTime() + 5000000000L;
+    while (loop.latest.get().tick < 20 && System.nanoTime() < deadline) {
+      Thread.yield();
     }
-    else {
-      return new ConsList<Fish>(
-          new Fish((new APosn(0 - (25 * randomFish), this.rand.nextInt(1000))),
-              (new APosn(60 / randomFish, 0)), randomFish, randomFish * 10, 0, "right",
-              Color.BLACK),
-          this.enemies);
+    loop.stop();
+    GameSnapshot snapshot = loop.latest.get();
+    return t.checkExpect(snapshot.tick >= 20 || snapshot.game.isOver(), true)
+        && t.checkExpect(snapshot.game.player.facing, "left")
+        && t.checkExpect(loop.period(), 1000000L);
+  }
+
+  boolean testParallelTick(Tester t) {
+    java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+    AGame start = this.gameWithEnemies(20000, 8, false);
+    AGame sequential = new FishGame(start.player, start.enemies, new Random(1));
+    AGame parallel = new FishGame(start.player, start.enemies, new Random(1)).withPool(pool);
+    AGame parallelArr = new FishGame(start.player, new ArrList<Fish>(start.enemies),
+        new Random(1)).withPool(pool);
+    for (int i = 0; i < 5; i = i + 1) {
+      sequential = (FishGame) sequential.onTick();
+      parallel = (FishGame) parallel.onTick();
+      parallelArr = (FishGame) parallelArr.onTick();
     }
-  }
-
-  public WorldScene makeScene() {
-    return new ConsList<Fish>(this.player, enemies).foldr(new PlaceAll(), this.getEmptyScene());
-  }
-
-  public WorldEnd worldEnds() {
-    if (this.player.level == 6) {
-      return new WorldEnd(true,
-          new FishGame(
-              new Fish(this.player.coordinates, this.player.velocity, this.player.level,
-                  this.player.experience, this.player.score, this.player.facing, Color.GREEN),
-              this.enemies).makeScene());
+    Object[] slots = { this.far,
+        new Fish(new APosn(-500, 500), new APosn(0, 0), 1, 10, 0, "left", Color.BLACK),
+        this.small };
+    pool.invoke(new MoveAndCull(slots, 0, 3, new MoveAll(WorldConfig.STANDARD),
+        new RemoveOffScreen(WorldConfig.STANDARD)));
+    pool.shutdown();
+    return t.checkExpect(parallel.player, sequential.player)
+        && t.checkExpect(parallel.enemies.length(), sequential.enemies.length())
+        && t.checkExpect(java.util.Arrays.equals(parallel.enemies.toArray(),
+            sequential.enemies.toArray(), new SameFish()), true)
+        && t.checkExpect(java.util.Arrays.equals(parallelArr.enemies.toArray(),
+            sequential.enemies.toArray(), new SameFish()), true)
+        && t.checkExpect(parallelArr.enemies instanceof ArrList, true)
+        && t.checkExpect(slots, new Object[] { this.far.move(WorldConfig.STANDARD), null,
+            this.small.move(WorldConfig.STANDARD) });
+  }
+
+  // neighbouring seeds give bots that press different first keys
+  boolean testRandomKeysSeeds(Tester t) {
+    java.util.HashSet<String> firstKeys = new java.util.HashSet<String>();
+    for (long seed = 0; seed < 40; seed = seed + 1) {
+      firstKeys.add(new RandomKeys(seed, 1).apply(0, this.game));
     }
-    else if (this.player.color.equals(Color.RED)) {
-      return new WorldEnd(true, this.makeScene());
+    return t.checkExpect(new RandomKeys(0, 1).apply(0, this.game),
+        new RandomKeys(0, 1).apply(0, this.game))
+        && t.checkExpect(new RandomKeys(0, 1).apply(0, this.game)
+            .equals(new RandomKeys(1, 1).apply(0, this.game)), false)
+        && t.checkExpect(firstKeys.size(), 4)
+        && t.checkExpect(RandomKeys.botSeed(7) == 7, false);
+  }
+
+  boolean testBatchRunner(Tester t) {
+    long[] seeds = { 1, 2, 3, 4 };
+    BatchRunner batch = new BatchRunner(new SeededGame(this.game), new SeededRandomKeys(3), 200, 2);
+    BatchResult[] first = batch.run(seeds);
+    BatchResult[] second = batch.run(seeds);
+    SimulationReport alone = new HeadlessRunner(new RandomKeys(3, 3))
+        .run(new FishGame(new Random(3)), 200);
+    return t.checkExpect(first.length, 4)
+        && t.checkExpect(first[2].seed, 3L)
+        && t.checkExpect(first[2].report.player, alone.player)
+        && t.checkExpect(second[3].report.player, first[3].report.player)
+        && t.checkExpect(BatchRunner.toCsv(first).split("\n").length, 5)
+        && t.checkExpect(BatchRunner.toJson(first).contains("\"games\": 4"), true);
+  }
+
+  boolean testReplay(Tester t) {
+    Replay replay = new Replay(77);
+    SimulationReport recorded = new HeadlessRunner(new RecordKeys(new RandomKeys(5, 2), replay))
+        .run(new FishGame(new Random(77)), 300);
+    Replay decoded = Replay.fromBytes(replay.toBytes());
+    SimulationReport partway = new HeadlessRunner(new RandomKeys(5, 2))
+        .run(new FishGame(new Random(77)), 40);
+    return t.checkExpect(decoded.seed, 77L)
+        && t.checkExpect(decoded.count, replay.count)
+        && t.checkExpect(decoded.length, recorded.ticks)
+        && t.checkExpect(decoded.play(new SeededGame(this.game)).player, recorded.player)
+        && t.checkExpect(decoded.playTo(new SeededGame(this.game), 40).player, partway.player)
+        && t.checkExpect(replay.toBytes().length <= 13 + 10 + 2 * replay.count, true);
+  }
+
+  boolean testReplayBytes(Tester t) {
+    Replay one = new Replay(3);
+    one.record(4, "up");
+    one.record(4, "space");
+    byte[] bad = one.toBytes();
+    bad[bad.length - 1] = 9;
+    return t.checkExpect(one.length, 5)
+        && t.checkExpect(Replay.fromBytes(one.toBytes()).length, 5)
+        && t.checkException(new IllegalArgumentException("Unknown key 9 in fish replay"),
+            one, "fromBytes", bad)
+        && t.checkException(new IllegalArgumentException("Truncated fish replay",
+            new java.io.EOFException()), one, "fromBytes",
+            java.util.Arrays.copyOf(bad, bad.length - 1));
+  }
+
+  boolean testGameRandom(Tester t) {
+    Random plain = new Random(31);
+    GameRandom game = new GameRandom(31);
+    int a = plain.nextInt(1000) + plain.nextInt(7);
+    int b = game.nextInt(1000) + game.nextInt(7);
+    GameRandom resumed = GameRandom.fromState(game.getState());
+    return t.checkExpect(b, a) && t.checkExpect(resumed.nextInt(), plain.nextInt())
+        && t.checkExpect(resumed.nextLong(), plain.nextLong());
+  }
+
+  boolean testGameCodec(Tester t) {
+    AGame saved = new HeadlessRunner(new RandomKeys(2, 3))
+        .run(new FishGame(new GameRandom(9), new ArrList<Fish>()), 200).game;
+    AGame restored = GameCodec.decode(GameCodec.encode(saved),
+        new FishGame(new GameRandom(0), new ArrList<Fish>()));
+    return t.checkExpect(restored.player, saved.player)
+        && t.checkExpect(restored.enemies instanceof ArrList, true)
+        && t.checkExpect(restored.enemies.toArray(), saved.enemies.toArray())
+        && t.checkExpect(restored.onTick().onTick().makeScene(),
+            saved.onTick().onTick().makeScene())
+        && t.checkException(
+            new IllegalArgumentException("Only a game played with a GameRandom can be saved"),
+            new GameCodec(), "encode", this.game2)
+        && t.checkException(new IllegalArgumentException("Not a version 1 fish snapshot"),
+            new GameCodec(), "decode", new Replay(1).toBytes(), this.game);
+  }
+
+  // a snapshot of a game with no enemies ends with the player's facing and
+  // color bytes and the enemy count; corrupting any of them, or cutting the
+  // snapshot short, is reported as an IllegalArgumentException
+  boolean testGameCodecGarbage(Tester t) {
+    byte[] good = GameCodec.encode(new FishGame(new GameRandom(4)));
+    byte[] facing = good.clone();
+    facing[good.length - 3] = -1;
+    byte[] color = good.clone();
+    color[good.length - 2] = 3;
+    byte[] many = good.clone();
+    many[good.length - 1] = 0x7F;
+    byte[] negative = java.util.Arrays.copyOf(good, good.length + 4);
+    negative[good.length - 1] = -1;
+    negative[good.length] = -1;
+    negative[good.length + 1] = -1;
+    negative[good.length + 2] = -1;
+    negative[good.length + 3] = 0x0F;
+    return t.checkExpect(GameCodec.decode(good, this.game).player,
+        new FishGame(new GameRandom(4)).player)
+        && t.checkException(new IllegalArgumentException("Unknown facing 255 in fish snapshot"),
+            new GameCodec(), "decode", facing, this.game)
+        && t.checkException(new IllegalArgumentException("Unknown color 3 in fish snapshot"),
+            new GameCodec(), "decode", color, this.game)
+        && t.checkException(
+            new IllegalArgumentException("Bad enemy count 127 in fish snapshot"),
+            new GameCodec(), "decode", many, this.game)
+        && t.checkException(
+            new IllegalArgumentException("Bad enemy count -1 in fish snapshot"),
+            new GameCodec(), "decode", negative, this.game)
+        && t.checkException(new IllegalArgumentException("Truncated fish snapshot",
+            new java.io.EOFException()), new GameCodec(), "decode",
+            java.util.Arrays.copyOf(good, good.length - 2), this.game);
+  }
+
+  boolean testSnapshotLog(Tester t) {
+    Replay replay = new Replay(44);
+    SnapshotLog log = new SnapshotLog(10);
+    SimulationReport run = new HeadlessRunner(
+        new SnapshotKeys(new RecordKeys(new RandomKeys(8, 4), replay), log))
+            .run(new FishGame(new GameRandom(44)), 400);
+    return t.checkExpect(log.count, (run.ticks + 9) / 10) && t.checkExpect(log.lastAt(29), 2)
+        && t.checkExpect(log.lastAt(30), 3)
+        && t.checkExpect(log.seek(replay, new SeededGame(this.game), 37).player,
+            replay.playTo(new SeededGame(this.game), 37).player)
+        && t.checkExpect(log.seek(replay, new SeededGame(this.game), run.ticks).player, run.player);
+  }
+
+  boolean testTickLog(Tester t) throws java.io.IOException {
+    java.nio.file.Path path = java.nio.file.Files.createTempFile("fish", ".log");
+    TickLog log = new TickLog(path, 44);
+    Replay replay = new Replay(44);
+    SimulationReport run = new HeadlessRunner(new RecordKeys(new RandomKeys(8, 4), replay))
+        .run(new FishGame(new GameRandom(44)).withListener(log), 400);
+    log.close();
+    TickLogReader reader = new TickLogReader(path);
+    Replay logged = reader.toReplay();
+    logged.length = replay.length;
+    boolean result = t.checkExpect(reader.seed, 44L)
+        && t.checkExpect(reader.countOf(TickLog.KEY), (long) replay.count)
+        && t.checkExpect(reader.countOf(TickLog.EATEN),
+            run.player.color.equals(Color.RED) ? 1L : 0L)
+        && t.checkExpect(reader.type(0), TickLog.KEY)
+        && t.checkExpect(reader.x(0), 500)
+        && t.checkExpect(reader.tick(reader.count - 1) < run.ticks, true)
+        && t.checkExpect(logged.play(new SeededGame(this.game)).player, run.player);
+    reader.close();
+    java.nio.file.Files.delete(path);
+    return result;
+  }
+
+  boolean testTickLogEaten(Tester t) throws java.io.IOException {
+    java.nio.file.Path path = java.nio.file.Files.createTempFile("fish", ".log");
+    TickLog log = new TickLog(path, 1);
+    log.eaten(new Fish(new APosn(500, 500), new APosn(0, 0), 1, 0, 0, "left", Color.RED),
+        new Fish(new APosn(510, 490), new APosn(-1, 0), 4, 0, 0, "right", Color.BLUE));
+    log.close();
+    TickLogReader reader = new TickLogReader(path);
+    boolean result = t.checkExpect(reader.type(0), TickLog.EATEN)
+        && t.checkExpect(reader.level(0), 4)
+        && t.checkExpect(reader.x(0), 510)
+        && t.checkExpect(reader.y(0), 490)
+        && t.checkExpect(reader.code(0), FishStore.facingCode("right"));
+    reader.close();
+    java.nio.file.Files.delete(path);
+    return result;
+  }
+
+  boolean testUpdateInPlace(Tester t) {
+    IList<Integer> cons = new ConsList<Integer>(0,
+        new ConsList<Integer>(5, new ConsList<Integer>(1, new MtList<Integer>())));
+    Object[] items = { 0, 5, 1, 9 };
+    IList<Integer> arr = new ArrList<Integer>(items, 0, 3);
+    IList<Integer> mixed = new ConsList<Integer>(0, new MtList<Integer>())
+        .append(new ArrList<Integer>(new Object[] { 1, 7, 0 }, 0, 3));
+    return t.checkExpect(cons.updateInPlace(new AddOne(), new AtMostTwo()),
+        new ConsList<Integer>(1, new ConsList<Integer>(2, new MtList<Integer>())))
+        && t.checkExpect(arr.updateInPlace(new AddOne(), new AtMostTwo()).toArray(),
+            new Object[] { 1, 2 })
+        && t.checkExpect(items, new Object[] { 1, 2, null, 9 })
+        && t.checkExpect(new MtList<Integer>().updateInPlace(new AddOne(), new AtMostTwo()),
+            new MtList<Integer>())
+        && t.checkExpect(mixed.updateInPlace(new AddOne(), new AtMostTwo()).toArray(),
+            new Object[] { 1, 2, 1 });
+  }
+
+  // turning on in-place moves copies the enemies, so the game it was turned on
+  // from, and the lists and fish it shares them with, are left as they were
+  boolean testInPlaceOwnsEnemies(Tester t) {
+    AGame start = this.gameWithEnemies(50, 6, true);
+    Object[] before = start.enemies.toArray();
+    IList<Fish> shared = start.enemies.getRest();
+    Fish first = start.enemies.getFirst();
+    int firstX = first.coordinates.x;
+    AGame inPlace = start.withInPlace(true);
+    for (int i = 0; i < 10; i = i + 1) {
+      inPlace = (AGame) inPlace.onTick();
     }
-    else {
-      return new WorldEnd(false, this.makeScene());
+    return t.checkExpect(start.enemies.toArray(), before)
+        && t.checkExpect(shared.length(), 49)
+        && t.checkExpect(first.coordinates.x, firstX)
+        && t.checkExpect(inPlace.withInPlace(true).enemies == inPlace.enemies, true);
+  }
+
+  boolean testInPlaceTick(Tester t) {
+    AGame moved = this.gameWithEnemies(300, 6, true);
+    AGame movedInPlace = this.gameWithEnemies(300, 6, false)
+        .withInPlace(true);
+    Fish oldest = (Fish) movedInPlace.enemies.toArray()[299];
+    int startX = oldest.coordinates.x;
+    for (int i = 0; i < 20; i = i + 1) {
+      moved = (FishGame) moved.onTick();
+      movedInPlace = (FishGame) movedInPlace.onTick();
     }
+    return t.checkExpect(movedInPlace.player, moved.player)
+        && t.checkExpect(movedInPlace.enemies.toArray(), moved.enemies.toArray())
+        && t.checkExpect(oldest.coordinates.x == startX, false);
   }
 
-  public World onKeyEvent(String key) {
-    if (key.equals("up")) {
-      return new FishGame(this.player.moves(0, -60, "up"), this.enemies);
+  boolean testLatencyHistogram(Tester t) {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 100; i = i + 1) {
+      h.record(i * 1000);
     }
-    else if (key.equals("down")) {
-      return new FishGame(this.player.moves(0, 60, "down"), this.enemies);
+    long bound = LatencyHistogram.upperBound(LatencyHistogram.bucket(1000));
+    return t.checkExpect(LatencyHistogram.bucket(5), 5)
+        && t.checkExpect(bound >= 1000 && bound < 1125, true)
+        && t.checkExpect(h.percentile(0.5) >= 50000 && h.percentile(0.5) <= 50000 * 9 / 8, true)
+        && t.checkExpect(h.percentile(0.99) >= 99000, true)
+        && t.checkExpect(h.percentile(1.0), 100000L) && t.checkExpect(h.max(), 100000L)
+        && t.checkExpect(new LatencyHistogram().percentile(0.99), 0L);
+  }
+
+  boolean testGameMetrics(Tester t) throws javax.management.JMException {
+    GameMetrics metrics = new GameMetrics();
+    SimulationReport run = new HeadlessRunner(new RandomKeys(8, 4))
+        .run(new FishGame(new GameRandom(44)).withListener(metrics), 400);
+    run.game.makeScene();
+    run.game.worldEnds();
+    metrics.register("test");
+    javax.management.ObjectName name = new javax.management.ObjectName(
+        "fishgame:type=GameMetrics,name=test");
+    Object ticks = java.lang.management.ManagementFactory.getPlatformMBeanServer()
+        .getAttribute(name, "Ticks");
+    java.lang.management.ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    return t.checkExpect(metrics.tick.count(), (long) run.ticks)
+        && t.checkExpect(ticks, (long) run.ticks)
+        && t.checkExpect(metrics.enemies, run.game.enemies.length())
+        && t.checkExpect(metrics.eaten, run.player.color.equals(Color.RED) ? 1L : 0L)
+        && t.checkExpect(metrics.spawns > 0, true)
+        && t.checkExpect(metrics.scene.count(), 2L) && t.checkExpect(metrics.ends.count(), 1L)
+        && t.checkExpect(metrics.toString().startsWith("onTick"), true);
+  }
+
+  boolean testDefaultListener(Tester t) {
+    GameMetrics metrics = new GameMetrics();
+    AGame watched = new FishGame(new Random(1)).withListener(metrics);
+    return t.checkExpect(new FishGame(new Random(1)).listener, null)
+        && t.checkExpect(watched.restart(new Random(2)).listener == metrics, true)
+        && t.checkExpect(watched.withFlightEvents().listener instanceof GameListeners, true)
+        && t.checkExpect(new FishGame(new Random(1)).withFlightEvents().listener
+            instanceof FishEvents, true);
+  }
+
+  boolean testFishEvents(Tester t) throws java.io.IOException {
+    jdk.jfr.Recording recording = new jdk.jfr.Recording();
+    recording.enable("fishgame.Tick").withoutThreshold();
+    recording.enable("fishgame.Spawn");
+    recording.enable("fishgame.Collision");
+    recording.enable("fishgame.Render").withoutThreshold();
+    recording.start();
+    SimulationReport run = new HeadlessRunner(new RandomKeys(8, 4))
+        .run(new FishGame(new GameRandom(44)).withFlightEvents(), 400);
+    run.game.makeScene();
+    recording.stop();
+    java.nio.file.Path path = java.nio.file.Files.createTempFile("fish", ".jfr");
+    recording.dump(path);
+    recording.close();
+    java.util.Map<String, Integer> counts = new java.util.HashMap<String, Integer>();
+    int enemiesAtEnd = -1;
+    for (jdk.jfr.consumer.RecordedEvent e : jdk.jfr.consumer.RecordingFile.readAllEvents(path)) {
+      counts.put(e.getEventType().getName(),
+          counts.getOrDefault(e.getEventType().getName(), 0) + 1);
+      if (e.getEventType().getName().equals("fishgame.Render")) {
+        enemiesAtEnd = e.getInt("entities") - 1;
+      }
     }
-    else if (key.equals("left")) {
-      return new FishGame(this.player.moves(-60, 0, "left"), this.enemies);
+    java.nio.file.Files.delete(path);
+    return t.checkExpect(counts.get("fishgame.Tick"), run.ticks)
+        && t.checkExpect(counts.get("fishgame.Spawn") > 0, true)
+        && t.checkExpect(counts.get("fishgame.Render"), 1)
+        && t.checkExpect(enemiesAtEnd, run.game.enemies.length())
+        && t.checkExpect(counts.getOrDefault("fishgame.Collision", 0) > 0,
+            run.player.score > 0 || run.player.color.equals(Color.RED));
+  }
+
+  boolean testSpawnScheduler(Tester t) {
+    SpawnScheduler full = new SpawnScheduler(new ConstantRate(40), 100, new GameRandom(3));
+    FishStore store = new FishStore(0);
+    int first = full.spawnInto(store, 0);
+    full.spawnInto(store, 1);
+    full.spawnInto(store, 2);
+    SpawnScheduler threes = new SpawnScheduler(new ConstantRate(2.5), 5000,
+        new double[] { 0, 0, 1, 0, 0 }, new GameRandom(3));
+    FishStore levels = new FishStore(0);
+    for (int i = 0; i < 600; i = i + 1) {
+      threes.spawnInto(levels, i);
     }
-    else if (key.equals("right")) {
-      return new FishGame(this.player.moves(60, 0, "right"), this.enemies);
+    boolean allThree = true;
+    for (int i = 0; i < levels.size; i = i + 1) {
+      allThree = allThree && levels.level[i] == 3 && levels.experience[i] == 30
+          && (levels.x[i] == -75 || levels.x[i] == 1075);
     }
-    else {
-      return this;
-    }
-  }
-
-  public World onTick() {
-    return new FishGame(this.eatOrEaten().movePlayer(),
-        this.eatenOrEat().map(new MoveAll()).filter(new RemoveOffScreen()));
-  }
-
-}
-
-class YourWorld {
-  Random rand;
-
-  // The constructor for use in "real" games
-  YourWorld() {
-    this(new Random());
-  }
-
-  // The constructor for use in testing, with a specified Random object
-  YourWorld(Random rand) {
-    this.rand = rand;
-  }
-
-}
-
-class ExamplesFish {
-
-  FishGame game = new FishGame();
-  FishGame game2 = new FishGame(
-      new Fish((new APosn(500, 500)), (new APosn(0, 0)), 1, 0, 0, "left", Color.BLACK),
-      new MtList<Fish>());
-
-  boolean testGame(Tester t) {
-    return game2.bigBang(1000, 1000, 0.1);
-  }
-
-  boolean testOnKeyEvent(Tester t) {
-    return t.checkExpect(game2.onKeyEvent("left"),
-        new FishGame(
-            new Fish((new APosn(500, 500)), (new APosn(-5, 0)), 1, 0, 0, "left", Color.BLACK),
-            new MtList<Fish>()));
+    return t.checkExpect(first, 40) && t.checkExpect(store.size, 100)
+        && t.checkExpect(full.spawnInto(store, 3), 0)
+        && t.checkExpect(levels.size > 1300 && levels.size < 1700, true)
+        && t.checkExpect(allThree, true)
+        && t.checkExpect(new RampRate(0, 10, 100).apply(50), 5.0)
+        && t.checkExpect(new RampRate(0, 10, 100).apply(500), 10.0)
+        && t.checkConstructorException(
+            new IllegalArgumentException("At least one level must have a weight"),
+            "SpawnScheduler", new ConstantRate(1), 10, new double[5], new GameRandom(1));
+  }
+
+  boolean testRecordingWorld(Tester t) {
+    World world = new RecordingWorld(this.game, 12).onKeyEvent("left").onTick().onKeyEvent("space")
+        .onKeyEvent("up").onTick().onTick();
+    RecordingWorld recording = (RecordingWorld) world;
+    return t.checkExpect(recording.replay.count, 2)
+        && t.checkExpect(recording.replay.length, 3)
+        && t.checkExpect(
+            Replay.fromBytes(recording.replay.toBytes()).play(new SeededGame(this.game)).player,
+            recording.game.player);
+  }
+
+  boolean testHeadlessRunner(Tester t) {
+    HeadlessRunner runner = new HeadlessRunner(new ScriptedKeys("left,,,up,,right,down"));
+    SimulationReport run1 = runner.run(new FishGame(new Random(42)), 500);
+    SimulationReport run2 = runner.run(new FishGame(new Random(42)), 500);
+    return t.checkExpect(run1.player, run2.player) && t.checkExpect(run1.ticks, run2.ticks)
+        && t.checkExpect(new HeadlessRunner().run(game2, 0).ticks, 0);
   }
 
 }
\ No newline at end of file